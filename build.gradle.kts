@@ -15,12 +15,39 @@ repositories {
     mavenCentral()
 }
 
+// JMH 벤치마크(src/jmh/java), build에는 포함되지 않고 jmh 태스크로만 컴파일하고 실행한다
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhVersion = "1.37"
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
 }
 
 tasks.test {
     useJUnitPlatform()
+}
+
+// ./gradlew jmh, 결과는 build/reports/jmh/results.json
+// 일부만 돌리려면 -Pjmh.include=<정규식> (예: -Pjmh.include=ProgramBenchmark.fib30)
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and writes JSON results."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    args("-rf", "json", "-rff", results.absolutePath)
+    providers.gradleProperty("jmh.include").orNull?.let { args(it) }
+    doFirst { results.parentFile.mkdirs() }
 }
\ No newline at end of file
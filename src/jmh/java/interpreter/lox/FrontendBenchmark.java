@@ -0,0 +1,65 @@
+package interpreter.lox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 큰 생성 스크립트의 Scanner, Parser 시간
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrontendBenchmark {
+    // 아래 조각을 몇 번 반복할지, 한 번에 10줄 남짓이다
+    @Param({"10000"})
+    public int blocks;
+
+    private String source;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < blocks; i++) {
+            builder.append("// block ").append(i).append('\n')
+                    .append("class Shape").append(i).append(" < Base {\n")
+                    .append("    init(w, h) { this.w = w; this.h = h; }\n")
+                    .append("    area() { return this.w * this.h + super.area(); }\n")
+                    .append("}\n")
+                    .append("fun compute").append(i).append("(a, b) {\n")
+                    .append("    var total = 0;\n")
+                    .append("    for (var k = 0; k < a; k = k + 1) { total = total + k * b - ").append(i).append(".5; }\n")
+                    .append("    if (total > 10 and !(b < 2) or a != nil) print \"value \" + total;\n")
+                    .append("    return total;\n")
+                    .append("}\n");
+        }
+        source = builder.toString();
+    }
+
+    // 토큰만 끝까지 읽는다
+    @Benchmark
+    public int scan() {
+        TokenBuffer tokens = new Scanner(source).scanTokens();
+        int count = 0;
+        while (tokens.type(count) != TokenType.EOF) count++;
+        return count;
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+        return new Parser(new Scanner(source).scanTokens()).parse();
+    }
+}
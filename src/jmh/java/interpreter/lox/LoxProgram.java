@@ -0,0 +1,55 @@
+package interpreter.lox;
+
+import java.util.List;
+
+// 벤치마크가 실행할 Lox 프로그램
+// 소스는 한 번만 scan, parse, resolve, 최적화해 두고 매 실행에서는 고른 엔진으로 실행만 한다
+final class LoxProgram {
+    static final String TREE = "tree";
+    static final String NODES = "nodes";
+    static final String VM = "vm";
+    static final String JIT = "jit";
+
+    private final Runnable run;
+
+    LoxProgram(String source, String engine) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parse();
+        Resolver resolver = new Resolver();
+        if (!Lox.hadError) resolver.resolve(statements);
+        if (Lox.hadError) throw new IllegalStateException("Benchmark source has errors.");
+
+        List<Stmt> optimized = new Optimizer().optimize(statements);
+        int frameSize = resolver.frameSize();
+        switch (engine) {
+            case TREE: {
+                Interpreter interpreter = new Interpreter();
+                run = () -> interpreter.interpret(optimized, frameSize);
+                break;
+            }
+            case JIT: {
+                Interpreter interpreter = new Interpreter();
+                interpreter.enableJit();
+                run = () -> interpreter.interpret(optimized, frameSize);
+                break;
+            }
+            case NODES: {
+                NodeCompiler nodes = new NodeCompiler();
+                run = () -> nodes.interpret(optimized, frameSize);
+                break;
+            }
+            case VM: {
+                VM vm = new VM();
+                run = () -> vm.interpret(optimized);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown engine '" + engine + "'.");
+        }
+    }
+
+    // 실행 중 에러는 Lox가 출력만 하고 넘어가므로 여기서 실패로 바꾼다
+    void run() {
+        run.run();
+        if (Lox.hadRuntimeError) throw new IllegalStateException("Benchmark program failed.");
+    }
+}
@@ -0,0 +1,154 @@
+package interpreter.lox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// 실행 엔진별 대표 부하, 프로그램 준비는 Setup에서 끝내고 실행 시간만 잰다
+// ==는 Scanner가 !=로 읽으므로 프로그램에서 쓰지 않는다
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProgramBenchmark {
+    private static final String FIB =
+            "fun fib(n) {\n" +
+            "    if (n < 2) return n;\n" +
+            "    return fib(n - 2) + fib(n - 1);\n" +
+            "}\n" +
+            "var result = fib(30);\n";
+
+    private static final String LOOP =
+            "fun loop(n) {\n" +
+            "    var i = 0;\n" +
+            "    var sum = 0;\n" +
+            "    while (i < n) {\n" +
+            "        sum = sum + i * 2 - i / 2;\n" +
+            "        i = i + 1;\n" +
+            "    }\n" +
+            "    return sum;\n" +
+            "}\n" +
+            "var result = loop(1000000);\n";
+
+    // 비교에서 이어 붙인 문자열을 펼치므로 결합과 펼치기를 함께 잰다
+    private static final String STRINGS =
+            "fun build(n) {\n" +
+            "    var out = \"\";\n" +
+            "    for (var i = 0; i < n; i = i + 1) {\n" +
+            "        out = out + \"line \" + i + \"\\n\";\n" +
+            "    }\n" +
+            "    return out;\n" +
+            "}\n" +
+            "var result = build(20000) != \"\";\n";
+
+    private static final String INSTANCES =
+            "class Point {\n" +
+            "    init(x, y) {\n" +
+            "        this.x = x;\n" +
+            "        this.y = y;\n" +
+            "    }\n" +
+            "}\n" +
+            "fun make(n) {\n" +
+            "    var p;\n" +
+            "    for (var i = 0; i < n; i = i + 1) {\n" +
+            "        p = Point(i, i + 1);\n" +
+            "    }\n" +
+            "    return p.x + p.y;\n" +
+            "}\n" +
+            "var result = make(200000);\n";
+
+    private static final String SUPER =
+            "class Base {\n" +
+            "    value(n) { return n + 1; }\n" +
+            "}\n" +
+            "class Derived < Base {\n" +
+            "    value(n) { return super.value(n) * 2; }\n" +
+            "}\n" +
+            "fun dispatch(n) {\n" +
+            "    var d = Derived();\n" +
+            "    var sum = 0;\n" +
+            "    for (var i = 0; i < n; i = i + 1) {\n" +
+            "        sum = sum + d.value(i);\n" +
+            "    }\n" +
+            "    return sum;\n" +
+            "}\n" +
+            "var result = dispatch(200000);\n";
+
+    private static final String CLOSURES =
+            "fun makeAdder(n) {\n" +
+            "    fun add(x) { return x + n; }\n" +
+            "    return add;\n" +
+            "}\n" +
+            "fun closures(n) {\n" +
+            "    var sum = 0;\n" +
+            "    for (var i = 0; i < n; i = i + 1) {\n" +
+            "        var f = makeAdder(i);\n" +
+            "        sum = sum + f(1);\n" +
+            "    }\n" +
+            "    return sum;\n" +
+            "}\n" +
+            "var result = closures(200000);\n";
+
+    @Param({LoxProgram.TREE, LoxProgram.NODES, LoxProgram.VM, LoxProgram.JIT})
+    public String engine;
+
+    private LoxProgram fib;
+    private LoxProgram loop;
+    private LoxProgram strings;
+    private LoxProgram instances;
+    private LoxProgram superDispatch;
+    private LoxProgram closures;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fib = new LoxProgram(FIB, engine);
+        loop = new LoxProgram(LOOP, engine);
+        strings = new LoxProgram(STRINGS, engine);
+        instances = new LoxProgram(INSTANCES, engine);
+        superDispatch = new LoxProgram(SUPER, engine);
+        closures = new LoxProgram(CLOSURES, engine);
+    }
+
+    @Benchmark
+    public void fib30() {
+        fib.run();
+    }
+
+    @Benchmark
+    public void whileLoop() {
+        loop.run();
+    }
+
+    @Benchmark
+    public void stringConcat() {
+        strings.run();
+    }
+
+    @Benchmark
+    public void instantiate() {
+        instances.run();
+    }
+
+    @Benchmark
+    public void superDispatch() {
+        superDispatch.run();
+    }
+
+    @Benchmark
+    public void closureCreation() {
+        closures.run();
+    }
+}
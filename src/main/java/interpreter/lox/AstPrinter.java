@@ -16,6 +16,11 @@ public class AstPrinter implements Expr.Visitor<String>{
         return "";
     }
 
+    @Override
+    public String visitInlineExpr(Expr.Inline expr) {
+        return expr.call.accept(this);
+    }
+
     @Override
     public String visitGetExpr(Expr.Get expr) {
         return "";
@@ -0,0 +1,192 @@
+package interpreter.lox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// AstWriter가 쓴 바이트열에서 AST를 다시 만든다
+// 식별자 토큰은 Symbol 표에 다시 넣으므로 이번 실행의 Symbol과 같은 객체가 된다
+final class AstReader {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final ByteBuffer in;
+    private final List<String> strings = new ArrayList<>();
+
+    AstReader(ByteBuffer in) {
+        this.in = in;
+    }
+
+    List<Stmt> read() {
+        return stmts();
+    }
+
+    private Expr expr() {
+        byte tag = in.get();
+        switch (tag) {
+            case AstWriter.NULL:
+                return null;
+            case AstWriter.ASSIGN: {
+                Expr.Assign expr = new Expr.Assign(token(), expr());
+                expr.slot = in.getInt();
+                expr.upvalue = bool();
+                expr.boxed = bool();
+                return expr;
+            }
+            case AstWriter.BINARY:
+                return new Expr.Binary(expr(), token(), expr());
+            case AstWriter.CALL:
+                return new Expr.Call(expr(), token(), exprs());
+            case AstWriter.GET:
+                return new Expr.Get(expr(), token());
+            case AstWriter.GROUPING:
+                return new Expr.Grouping(expr());
+            case AstWriter.LITERAL:
+                return new Expr.Literal(value());
+            case AstWriter.LOGICAL:
+                return new Expr.Logical(expr(), token(), expr());
+            case AstWriter.SET:
+                return new Expr.Set(expr(), token(), expr());
+            case AstWriter.SUPER: {
+                Expr.Super expr = new Expr.Super(token(), token());
+                expr.superclass = (Expr.Variable) expr();
+                expr.self = (Expr.This) expr();
+                return expr;
+            }
+            case AstWriter.THIS: {
+                Expr.This expr = new Expr.This(token());
+                expr.slot = in.getInt();
+                expr.upvalue = bool();
+                expr.boxed = bool();
+                return expr;
+            }
+            case AstWriter.UNARY:
+                return new Expr.Unary(token(), expr());
+            case AstWriter.VARIABLE: {
+                Expr.Variable expr = new Expr.Variable(token());
+                expr.slot = in.getInt();
+                expr.upvalue = bool();
+                expr.boxed = bool();
+                return expr;
+            }
+            default:
+                throw new IllegalStateException("Unknown expression tag " + tag + ".");
+        }
+    }
+
+    private Stmt stmt() {
+        byte tag = in.get();
+        switch (tag) {
+            case AstWriter.NULL:
+                return null;
+            case AstWriter.BLOCK:
+                return new Stmt.Block(stmts());
+            case AstWriter.CLASS: {
+                Token name = token();
+                Expr.Variable superclass = (Expr.Variable) expr();
+                List<Stmt.Function> methods = new ArrayList<>();
+                for (Stmt method : stmts()) methods.add((Stmt.Function) method);
+                Stmt.Class stmt = new Stmt.Class(name, superclass, methods);
+                stmt.slot = in.getInt();
+                stmt.boxed = bool();
+                stmt.superSlot = in.getInt();
+                stmt.superBoxed = bool();
+                return stmt;
+            }
+            case AstWriter.EXPRESSION:
+                return new Stmt.Expression(expr());
+            case AstWriter.FUNCTION: {
+                Stmt.Function stmt = new Stmt.Function(token(), tokens(), stmts());
+                stmt.frameSize = in.getInt();
+                stmt.cells = ints();
+                stmt.captures = ints();
+                stmt.slot = in.getInt();
+                stmt.boxed = bool();
+                return stmt;
+            }
+            case AstWriter.IF:
+                return new Stmt.If(expr(), stmt(), stmt());
+            case AstWriter.PRINT:
+                return new Stmt.Print(expr());
+            case AstWriter.RETURN: {
+                Stmt.Return stmt = new Stmt.Return(token(), expr());
+                stmt.tail = bool();
+                return stmt;
+            }
+            case AstWriter.VAR: {
+                Stmt.Var stmt = new Stmt.Var(token(), expr());
+                stmt.slot = in.getInt();
+                stmt.boxed = bool();
+                return stmt;
+            }
+            case AstWriter.WHILE:
+                return new Stmt.While(expr(), stmt());
+            default:
+                throw new IllegalStateException("Unknown statement tag " + tag + ".");
+        }
+    }
+
+    private List<Expr> exprs() {
+        int size = in.getInt();
+        List<Expr> exprs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) exprs.add(expr());
+        return exprs;
+    }
+
+    private List<Stmt> stmts() {
+        int size = in.getInt();
+        List<Stmt> stmts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) stmts.add(stmt());
+        return stmts;
+    }
+
+    private Token token() {
+        TokenType type = TYPES[in.get()];
+        String lexeme = string();
+        Object literal = value();
+        int line = in.getInt();
+        if (bool()) return new Token(Symbol.intern(lexeme), line);
+        return new Token(type, lexeme, literal, line);
+    }
+
+    private List<Token> tokens() {
+        int size = in.getInt();
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) tokens.add(token());
+        return tokens;
+    }
+
+    private Object value() {
+        byte tag = in.get();
+        switch (tag) {
+            case AstWriter.NULL: return null;
+            case AstWriter.FALSE: return false;
+            case AstWriter.TRUE: return true;
+            case AstWriter.NUMBER: return in.getDouble();
+            case AstWriter.STRING: return string();
+            default:
+                throw new IllegalStateException("Unknown value tag " + tag + ".");
+        }
+    }
+
+    private String string() {
+        int index = in.getInt();
+        if (index >= 0) return strings.get(index);
+
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        String string = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(string);
+        return string;
+    }
+
+    private int[] ints() {
+        int[] values = new int[in.getInt()];
+        for (int i = 0; i < values.length; i++) values[i] = in.getInt();
+        return values;
+    }
+
+    private boolean bool() {
+        return in.get() != 0;
+    }
+}
@@ -0,0 +1,345 @@
+package interpreter.lox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// resolve까지 끝난 AST를 ScriptCache에 저장할 바이트열로 쓴다, AstReader가 같은 순서로 읽는다
+// 노드마다 태그 한 바이트 뒤에 필드를 선언 순서대로 쓰고, Resolver가 채운 slot과 capture 정보도 함께 쓴다
+// 문자열은 처음 나올 때만 내용을 쓰고 그 뒤로는 번호만 쓴다
+final class AstWriter implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    static final byte NULL = 0;
+
+    static final byte ASSIGN = 1;
+    static final byte BINARY = 2;
+    static final byte CALL = 3;
+    static final byte GET = 4;
+    static final byte GROUPING = 5;
+    static final byte LITERAL = 6;
+    static final byte LOGICAL = 7;
+    static final byte SET = 8;
+    static final byte SUPER = 9;
+    static final byte THIS = 10;
+    static final byte UNARY = 11;
+    static final byte VARIABLE = 12;
+
+    static final byte BLOCK = 1;
+    static final byte CLASS = 2;
+    static final byte EXPRESSION = 3;
+    static final byte FUNCTION = 4;
+    static final byte IF = 5;
+    static final byte PRINT = 6;
+    static final byte RETURN = 7;
+    static final byte VAR = 8;
+    static final byte WHILE = 9;
+
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte NUMBER = 3;
+    static final byte STRING = 4;
+
+    private ByteBuffer out = ByteBuffer.allocate(4096);
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    byte[] write(List<Stmt> statements) {
+        stmts(statements);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    private void expr(Expr expr) {
+        if (expr == null) {
+            putByte(NULL);
+            return;
+        }
+        expr.accept(this);
+    }
+
+    private void stmt(Stmt stmt) {
+        if (stmt == null) {
+            putByte(NULL);
+            return;
+        }
+        stmt.accept(this);
+    }
+
+    private void exprs(List<Expr> exprs) {
+        putInt(exprs.size());
+        for (Expr expr : exprs) expr(expr);
+    }
+
+    private void stmts(List<? extends Stmt> stmts) {
+        putInt(stmts.size());
+        for (Stmt stmt : stmts) stmt(stmt);
+    }
+
+    private void token(Token token) {
+        putByte((byte) token.type.ordinal());
+        string(token.lexeme);
+        value(token.literal);
+        putInt(token.line);
+        putBoolean(token.symbol != null);
+    }
+
+    private void tokens(List<Token> tokens) {
+        putInt(tokens.size());
+        for (Token token : tokens) token(token);
+    }
+
+    private void value(Object value) {
+        if (value == null) {
+            putByte(NULL);
+        } else if (value instanceof Boolean) {
+            putByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            putByte(NUMBER);
+            ensure(8);
+            out.putDouble((Double) value);
+        } else {
+            putByte(STRING);
+            string(value.toString());
+        }
+    }
+
+    private void string(String string) {
+        Integer index = strings.get(string);
+        if (index != null) {
+            putInt(index);
+            return;
+        }
+
+        strings.put(string, strings.size());
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        putInt(-1);
+        putInt(bytes.length);
+        ensure(bytes.length);
+        out.put(bytes);
+    }
+
+    private void ints(int[] values) {
+        putInt(values.length);
+        for (int value : values) putInt(value);
+    }
+
+    // 지역 변수 정보, slot이 -1이면 전역
+    private void local(int slot, boolean upvalue, boolean boxed) {
+        putInt(slot);
+        putBoolean(upvalue);
+        putBoolean(boxed);
+    }
+
+    private void putByte(byte value) {
+        ensure(1);
+        out.put(value);
+    }
+
+    private void putBoolean(boolean value) {
+        putByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    private void putInt(int value) {
+        ensure(4);
+        out.putInt(value);
+    }
+
+    private void ensure(int size) {
+        if (out.remaining() >= size) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+        out.flip();
+        bigger.put(out);
+        out = bigger;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        putByte(ASSIGN);
+        token(expr.name);
+        expr(expr.value);
+        local(expr.slot, expr.upvalue, expr.boxed);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        putByte(BINARY);
+        expr(expr.left);
+        token(expr.operator);
+        expr(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        putByte(CALL);
+        expr(expr.callee);
+        token(expr.paren);
+        exprs(expr.arguments);
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        putByte(GET);
+        expr(expr.object);
+        token(expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        putByte(GROUPING);
+        expr(expr.expression);
+        return null;
+    }
+
+    // 인라인은 최적화 패스가 만들고, 캐시에는 최적화 전의 AST만 저장한다
+    @Override
+    public Void visitInlineExpr(Expr.Inline expr) {
+        throw new IllegalStateException("Inline nodes are not cached.");
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        putByte(LITERAL);
+        value(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        putByte(LOGICAL);
+        expr(expr.left);
+        token(expr.operator);
+        expr(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        putByte(SET);
+        expr(expr.object);
+        token(expr.name);
+        expr(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        putByte(SUPER);
+        token(expr.keyword);
+        token(expr.method);
+        expr(expr.superclass);
+        expr(expr.self);
+        return null;
+    }
+
+    @Override
+    public Void visitThisExpr(Expr.This expr) {
+        putByte(THIS);
+        token(expr.keyword);
+        local(expr.slot, expr.upvalue, expr.boxed);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        putByte(UNARY);
+        token(expr.operator);
+        expr(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        putByte(VARIABLE);
+        token(expr.name);
+        local(expr.slot, expr.upvalue, expr.boxed);
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        putByte(BLOCK);
+        stmts(stmt.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        putByte(CLASS);
+        token(stmt.name);
+        expr(stmt.superclass);
+        stmts(stmt.methods);
+        putInt(stmt.slot);
+        putBoolean(stmt.boxed);
+        putInt(stmt.superSlot);
+        putBoolean(stmt.superBoxed);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        putByte(EXPRESSION);
+        expr(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        putByte(FUNCTION);
+        token(stmt.name);
+        tokens(stmt.params);
+        stmts(stmt.body);
+        putInt(stmt.frameSize);
+        ints(stmt.cells);
+        ints(stmt.captures);
+        putInt(stmt.slot);
+        putBoolean(stmt.boxed);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        putByte(IF);
+        expr(stmt.condition);
+        stmt(stmt.thenBranch);
+        stmt(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        putByte(PRINT);
+        expr(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        putByte(RETURN);
+        token(stmt.keyword);
+        expr(stmt.value);
+        putBoolean(stmt.tail);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        putByte(VAR);
+        token(stmt.name);
+        expr(stmt.initializer);
+        putInt(stmt.slot);
+        putBoolean(stmt.boxed);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        putByte(WHILE);
+        expr(stmt.condition);
+        stmt(stmt.body);
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package interpreter.lox;
+
+// 안쪽 함수가 잡은 지역 변수, 프레임 슬롯과 클로저의 upvalues가 같은 Cell을 나눠 갖는다
+final class Cell {
+    Object value;
+
+    Cell(Object value) {
+        this.value = value;
+    }
+}
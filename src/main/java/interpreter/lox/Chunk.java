@@ -0,0 +1,42 @@
+package interpreter.lox;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// 한 함수의 바이트코드와 상수 풀
+// 런타임 에러 보고를 위해 바이트마다 줄 번호를 함께 기록한다
+class Chunk {
+    byte[] code = new byte[16];
+    int[] lines = new int[16];
+    int count = 0;
+    Object[] constants = new Object[8];
+    int constantCount = 0;
+    // 숫자, 문자열 상수는 재사용한다
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    void write(byte b, int line) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            lines = Arrays.copyOf(lines, count * 2);
+        }
+        code[count] = b;
+        lines[count] = line;
+        count++;
+    }
+
+    int addConstant(Object value) {
+        boolean shareable = value instanceof Double || value instanceof String;
+        if (shareable) {
+            Integer index = constantIndex.get(value);
+            if (index != null) return index;
+        }
+
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        if (shareable) constantIndex.put(value, constantCount);
+        return constantCount++;
+    }
+}
@@ -0,0 +1,62 @@
+package interpreter.lox;
+
+// JvmCompiler가 hidden class로 만든 본문을 실행하는 함수
+public class CompiledFunction extends LoxFunction {
+
+    private final JvmCompiler.Code code;
+    private final Object[] constants;
+    private final Environment globals;
+
+    // 바깥 변수를 잡는 함수는 컴파일하지 않으므로 upvalues가 비어 있다
+    CompiledFunction(Stmt.Function fn, JvmCompiler.Code code, Object[] constants, Environment globals) {
+        super(fn, new Cell[0], false);
+        this.code = code;
+        this.constants = constants;
+        this.globals = globals;
+    }
+
+    // 메서드는 컴파일하지 않으므로 instance는 항상 null이다
+    // 컴파일된 본문은 인자를 배열로 받는다
+    // --profile이면 그림자 호출 스택에 이 함수를 올리고 실행한다
+    private Object execute(Interpreter interpreter, Object[] arguments) {
+        Profiler profiler = Profiler.current;
+        if (profiler != null) profiler.enter(fn);
+        LoxEvents.FunctionCallEvent event = LoxEvents.beginCall();
+        try {
+            return code.invoke(interpreter, constants, globals, arguments);
+        } finally {
+            if (profiler != null) profiler.exit();
+            LoxEvents.endCall(event, fn.name);
+        }
+    }
+
+    @Override
+    Object invoke(Interpreter interpreter, LoxInstance instance, Object[] arguments) {
+        return execute(interpreter, arguments);
+    }
+
+    @Override
+    Object invoke0(Interpreter interpreter, LoxInstance instance) {
+        return execute(interpreter, NO_ARGUMENTS);
+    }
+
+    @Override
+    Object invoke1(Interpreter interpreter, LoxInstance instance, Object a) {
+        return execute(interpreter, new Object[]{a});
+    }
+
+    @Override
+    Object invoke2(Interpreter interpreter, LoxInstance instance, Object a, Object b) {
+        return execute(interpreter, new Object[]{a, b});
+    }
+
+    @Override
+    Object invoke3(Interpreter interpreter, LoxInstance instance, Object a, Object b, Object c) {
+        return execute(interpreter, new Object[]{a, b, c});
+    }
+
+    @Override
+    Object invoke4(Interpreter interpreter, LoxInstance instance, Object a, Object b, Object c, Object d) {
+        return execute(interpreter, new Object[]{a, b, c, d});
+    }
+}
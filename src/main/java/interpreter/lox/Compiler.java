@@ -0,0 +1,580 @@
+package interpreter.lox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static interpreter.lox.OpCode.*;
+
+// Resolver를 통과한 AST를 VM이 실행할 바이트코드로 바꾼다
+// 정적 검사는 Resolver가 이미 끝냈으므로, 여기서는 변수를 스택 슬롯/업밸류/전역 번호로만 바꾼다
+class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+
+    private static final int MAX_LOCALS = 256;
+    private static final int MAX_UPVALUES = 256;
+
+    private enum FunctionType {
+        SCRIPT,
+        FUNCTION,
+        INITIALIZER,
+        METHOD
+    }
+
+    private static class Local {
+        final String name;
+        final int depth;
+        boolean captured = false;
+
+        Local(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    private static class Upvalue {
+        final int index;
+        final boolean isLocal;
+
+        Upvalue(int index, boolean isLocal) {
+            this.index = index;
+            this.isLocal = isLocal;
+        }
+    }
+
+    // 컴파일 중인 함수 하나의 상태, 중첩 함수마다 하나씩 쌓인다
+    private static class FunctionState {
+        final FunctionState enclosing;
+        final VM.ObjFunction function;
+        final FunctionType type;
+        final List<Local> locals = new ArrayList<>();
+        final List<Upvalue> upvalues = new ArrayList<>();
+        int scopeDepth = 0;
+
+        FunctionState(FunctionState enclosing, VM.ObjFunction function, FunctionType type) {
+            this.enclosing = enclosing;
+            this.function = function;
+            this.type = type;
+
+            // 0번 슬롯은 호출된 함수 자신, 메서드라면 this가 차지한다
+            boolean hasReceiver = type == FunctionType.METHOD || type == FunctionType.INITIALIZER;
+            locals.add(new Local(hasReceiver ? "this" : "", 0));
+        }
+    }
+
+    private final VM vm;
+    private FunctionState current;
+    private int line = 1;
+
+    Compiler(VM vm) {
+        this.vm = vm;
+    }
+
+    VM.ObjFunction compile(List<Stmt> statements) {
+        current = new FunctionState(null, new VM.ObjFunction(null), FunctionType.SCRIPT);
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+        emitReturn();
+        return current.function;
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        beginScope();
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        line = stmt.name.line;
+        int nameConstant = makeConstant(stmt.name.lexeme);
+
+        emitOp(CLASS);
+        emitShort(nameConstant);
+        defineVariable(stmt.name.lexeme);
+
+        if (stmt.superclass != null) {
+            compile(stmt.superclass);
+
+            // super는 메서드들이 업밸류로 잡아갈 지역 변수로 만든다
+            beginScope();
+            addLocal("super");
+
+            loadVariable(stmt.name.lexeme);
+            line = stmt.superclass.name.line;
+            emitOp(INHERIT);
+        }
+
+        loadVariable(stmt.name.lexeme);
+        for (Stmt.Function method : stmt.methods) {
+            FunctionType type = method.name.lexeme.equals("init")
+                    ? FunctionType.INITIALIZER : FunctionType.METHOD;
+            function(method, type);
+            line = method.name.line;
+            emitOp(METHOD);
+            emitShort(makeConstant(method.name.lexeme));
+        }
+        emitOp(POP);
+
+        if (stmt.superclass != null) endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        compile(stmt.expression);
+        emitOp(POP);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        line = stmt.name.line;
+        // 재귀 호출을 위해 본문보다 먼저 이름을 사용 가능하게 한다
+        if (current.scopeDepth > 0) {
+            addLocal(stmt.name.lexeme);
+            function(stmt, FunctionType.FUNCTION);
+        } else {
+            function(stmt, FunctionType.FUNCTION);
+            emitOp(DEFINE_GLOBAL);
+            emitShort(vm.globalSlot(stmt.name.lexeme));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        compile(stmt.condition);
+        int thenJump = emitJump(POP_JUMP_IF_FALSE);
+        compile(stmt.thenBranch);
+
+        if (stmt.elseBranch == null) {
+            patchJump(thenJump);
+            return null;
+        }
+
+        int elseJump = emitJump(JUMP);
+        patchJump(thenJump);
+        compile(stmt.elseBranch);
+        patchJump(elseJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        compile(stmt.expression);
+        emitOp(PRINT);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        line = stmt.keyword.line;
+        if (stmt.value == null || current.type == FunctionType.INITIALIZER) {
+            emitReturn();
+            return null;
+        }
+
+        compile(stmt.value);
+        emitOp(RETURN);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.initializer != null) {
+            compile(stmt.initializer);
+        } else {
+            emitOp(NIL);
+        }
+
+        line = stmt.name.line;
+        defineVariable(stmt.name.lexeme);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int loopStart = current.function.chunk.count;
+        compile(stmt.condition);
+        int exitJump = emitJump(POP_JUMP_IF_FALSE);
+        compile(stmt.body);
+        emitLoop(loopStart);
+        patchJump(exitJump);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        compile(expr.value);
+        line = expr.name.line;
+
+        String name = expr.name.lexeme;
+        int slot = resolveLocal(current, name);
+        if (slot != -1) {
+            emitOp(SET_LOCAL);
+            emitByte(slot);
+            return null;
+        }
+
+        int upvalue = resolveUpvalue(current, name);
+        if (upvalue != -1) {
+            emitOp(SET_UPVALUE);
+            emitByte(upvalue);
+            return null;
+        }
+
+        emitOp(SET_GLOBAL);
+        emitShort(vm.globalSlot(name));
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        compile(expr.left);
+        compile(expr.right);
+
+        line = expr.operator.line;
+        switch (expr.operator.type) {
+            case GREATER: emitOp(GREATER); break;
+            case GREATER_EQUAL: emitOp(GREATER_EQUAL); break;
+            case LESS: emitOp(LESS); break;
+            case LESS_EQUAL: emitOp(LESS_EQUAL); break;
+            case MINUS: emitOp(SUBTRACT); break;
+            case PLUS: emitOp(ADD); break;
+            case SLASH: emitOp(DIVIDE); break;
+            case STAR: emitOp(MULTIPLY); break;
+            case BANG_EQUAL: emitOp(EQUAL); emitOp(NOT); break;
+            case EQUAL: emitOp(EQUAL); break;
+        }
+        return null;
+    }
+
+    // VM은 인라인하지 않고 원래 호출을 컴파일한다
+    @Override
+    public Void visitInlineExpr(Expr.Inline expr) {
+        return expr.call.accept(this);
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        // obj.method(...)는 바운드 메서드를 만들지 않고 바로 호출한다
+        if (expr.callee instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get) expr.callee;
+            compile(get.object);
+            compileArguments(expr.arguments);
+            line = expr.paren.line;
+            emitOp(INVOKE);
+            emitShort(makeConstant(get.name.lexeme));
+            emitByte(expr.arguments.size());
+            return null;
+        }
+
+        if (expr.callee instanceof Expr.Super) {
+            Expr.Super callee = (Expr.Super) expr.callee;
+            line = callee.keyword.line;
+            loadVariable("this");
+            compileArguments(expr.arguments);
+            loadVariable("super");
+            line = expr.paren.line;
+            emitOp(SUPER_INVOKE);
+            emitShort(makeConstant(callee.method.lexeme));
+            emitByte(expr.arguments.size());
+            return null;
+        }
+
+        compile(expr.callee);
+        compileArguments(expr.arguments);
+        line = expr.paren.line;
+        emitOp(CALL);
+        emitByte(expr.arguments.size());
+        return null;
+    }
+
+    private void compileArguments(List<Expr> arguments) {
+        for (Expr argument : arguments) {
+            compile(argument);
+        }
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        compile(expr.object);
+        line = expr.name.line;
+        emitOp(GET_PROPERTY);
+        emitShort(makeConstant(expr.name.lexeme));
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value == null) {
+            emitOp(NIL);
+        } else if (expr.value == Boolean.TRUE) {
+            emitOp(TRUE);
+        } else if (expr.value == Boolean.FALSE) {
+            emitOp(FALSE);
+        } else {
+            emitOp(CONSTANT);
+            emitShort(makeConstant(expr.value));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        compile(expr.left);
+
+        // 왼쪽 값으로 결과가 정해지면 그 값을 남긴 채 건너뛴다
+        int endJump = emitJump(expr.operator.type == TokenType.OR ? JUMP_IF_TRUE : JUMP_IF_FALSE);
+        emitOp(POP);
+        compile(expr.right);
+        patchJump(endJump);
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        compile(expr.object);
+        compile(expr.value);
+        line = expr.name.line;
+        emitOp(SET_PROPERTY);
+        emitShort(makeConstant(expr.name.lexeme));
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        line = expr.keyword.line;
+        loadVariable("this");
+        loadVariable("super");
+        line = expr.method.line;
+        emitOp(GET_SUPER);
+        emitShort(makeConstant(expr.method.lexeme));
+        return null;
+    }
+
+    @Override
+    public Void visitThisExpr(Expr.This expr) {
+        line = expr.keyword.line;
+        loadVariable("this");
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        compile(expr.right);
+        line = expr.operator.line;
+        switch (expr.operator.type) {
+            case BANG: emitOp(NOT); break;
+            case MINUS: emitOp(NEGATE); break;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        line = expr.name.line;
+        loadVariable(expr.name.lexeme);
+        return null;
+    }
+
+    private void function(Stmt.Function stmt, FunctionType type) {
+        VM.ObjFunction function = new VM.ObjFunction(stmt.name.lexeme);
+        function.line = stmt.name.line;
+        function.arity = stmt.params.size();
+        current = new FunctionState(current, function, type);
+
+        beginScope();
+        for (Token param : stmt.params) {
+            line = param.line;
+            addLocal(param.lexeme);
+        }
+        for (Stmt statement : stmt.body) {
+            compile(statement);
+        }
+        emitReturn();
+
+        // 본문의 스코프는 RETURN이 통째로 정리하므로 endScope를 내보내지 않는다
+        FunctionState compiled = current;
+        current = current.enclosing;
+        function.upvalueCount = compiled.upvalues.size();
+
+        line = stmt.name.line;
+        emitOp(CLOSURE);
+        emitShort(makeConstant(function));
+        for (Upvalue upvalue : compiled.upvalues) {
+            emitByte(upvalue.isLocal ? 1 : 0);
+            emitByte(upvalue.index);
+        }
+    }
+
+    private void loadVariable(String name) {
+        int slot = resolveLocal(current, name);
+        if (slot != -1) {
+            emitOp(GET_LOCAL);
+            emitByte(slot);
+            return;
+        }
+
+        int upvalue = resolveUpvalue(current, name);
+        if (upvalue != -1) {
+            emitOp(GET_UPVALUE);
+            emitByte(upvalue);
+            return;
+        }
+
+        emitOp(GET_GLOBAL);
+        emitShort(vm.globalSlot(name));
+    }
+
+    // 스택 맨 위의 값을 새 변수로 만든다
+    // 초기화식을 먼저 컴파일하므로 지역 변수는 선언과 동시에 사용 가능하다
+    private void defineVariable(String name) {
+        if (current.scopeDepth > 0) {
+            addLocal(name);
+            return;
+        }
+
+        emitOp(DEFINE_GLOBAL);
+        emitShort(vm.globalSlot(name));
+    }
+
+    private void addLocal(String name) {
+        if (current.locals.size() == MAX_LOCALS) {
+            Lox.error(line, "Too many local variables in function.");
+            return;
+        }
+        current.locals.add(new Local(name, current.scopeDepth));
+    }
+
+    private int resolveLocal(FunctionState state, String name) {
+        for (int i = state.locals.size() - 1; i >= 0; i--) {
+            if (state.locals.get(i).name.equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private int resolveUpvalue(FunctionState state, String name) {
+        if (state.enclosing == null) return -1;
+
+        int local = resolveLocal(state.enclosing, name);
+        if (local != -1) {
+            state.enclosing.locals.get(local).captured = true;
+            return addUpvalue(state, local, true);
+        }
+
+        int upvalue = resolveUpvalue(state.enclosing, name);
+        if (upvalue != -1) {
+            return addUpvalue(state, upvalue, false);
+        }
+
+        return -1;
+    }
+
+    private int addUpvalue(FunctionState state, int index, boolean isLocal) {
+        for (int i = 0; i < state.upvalues.size(); i++) {
+            Upvalue upvalue = state.upvalues.get(i);
+            if (upvalue.index == index && upvalue.isLocal == isLocal) return i;
+        }
+
+        if (state.upvalues.size() == MAX_UPVALUES) {
+            Lox.error(line, "Too many closure variables in function.");
+            return 0;
+        }
+
+        state.upvalues.add(new Upvalue(index, isLocal));
+        return state.upvalues.size() - 1;
+    }
+
+    private void beginScope() {
+        current.scopeDepth++;
+    }
+
+    private void endScope() {
+        current.scopeDepth--;
+
+        List<Local> locals = current.locals;
+        while (!locals.isEmpty() && locals.get(locals.size() - 1).depth > current.scopeDepth) {
+            // 클로저가 잡아간 변수는 힙으로 옮긴 뒤 스택에서 내린다
+            emitOp(locals.get(locals.size() - 1).captured ? CLOSE_UPVALUE : POP);
+            locals.remove(locals.size() - 1);
+        }
+    }
+
+    private void emitReturn() {
+        if (current.type == FunctionType.INITIALIZER) {
+            emitOp(GET_LOCAL);
+            emitByte(0);
+        } else {
+            emitOp(NIL);
+        }
+        emitOp(RETURN);
+    }
+
+    private int emitJump(byte op) {
+        emitOp(op);
+        emitByte(0xff);
+        emitByte(0xff);
+        return current.function.chunk.count - 2;
+    }
+
+    private void patchJump(int offset) {
+        Chunk chunk = current.function.chunk;
+        int jump = chunk.count - offset - 2;
+        if (jump > 0xffff) {
+            Lox.error(line, "Too much code to jump over.");
+        }
+        chunk.code[offset] = (byte) ((jump >> 8) & 0xff);
+        chunk.code[offset + 1] = (byte) (jump & 0xff);
+    }
+
+    private void emitLoop(int loopStart) {
+        emitOp(LOOP);
+        int offset = current.function.chunk.count - loopStart + 2;
+        if (offset > 0xffff) {
+            Lox.error(line, "Loop body too large.");
+        }
+        emitByte((offset >> 8) & 0xff);
+        emitByte(offset & 0xff);
+    }
+
+    private int makeConstant(Object value) {
+        int constant = current.function.chunk.addConstant(value);
+        if (constant > 0xffff) {
+            Lox.error(line, "Too many constants in one chunk.");
+            return 0;
+        }
+        return constant;
+    }
+
+    private void emitOp(byte op) {
+        current.function.chunk.write(op, line);
+    }
+
+    private void emitByte(int b) {
+        current.function.chunk.write((byte) b, line);
+    }
+
+    private void emitShort(int value) {
+        emitByte((value >> 8) & 0xff);
+        emitByte(value & 0xff);
+    }
+}
@@ -0,0 +1,9 @@
+package interpreter.lox;
+
+// Interpreter와 StmtNode가 문장을 실행한 결과
+// RETURN이면 감싸고 있는 블록, if, while을 빠져나가 LoxFunction.run(노드는 NodeFunction.run)까지 그대로 돌아간다
+// 반환 값과 꼬리 호출은 Interpreter(노드는 ValueStack)에 따로 담아 두어 return마다 객체를 만들거나 던지지 않는다
+enum Completion {
+    NORMAL,
+    RETURN
+}
@@ -0,0 +1,80 @@
+package interpreter.lox;
+
+// 피연산자가 모두 리터럴인 Binary, Unary, Logical, Grouping을 미리 계산해 리터럴로 바꾼다
+// 계산은 Interpreter에 맡겨 실행할 때와 결과가 같고, 실행 중 에러가 나는 식(0으로 나누기 등)은 그대로 둔다
+class ConstantFolding extends OptimizationPass {
+    private final Interpreter interpreter = new Interpreter();
+
+    @Override
+    String name() {
+        return "fold";
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr rewritten = super.visitBinaryExpr(expr);
+        if (!(rewritten instanceof Expr.Binary)) return rewritten;
+
+        Expr.Binary binary = (Expr.Binary) rewritten;
+        if (!(binary.left instanceof Expr.Literal) || !(binary.right instanceof Expr.Literal)) {
+            return binary;
+        }
+
+        try {
+            return fold(interpreter.visitBinaryExpr(binary));
+        } catch (RuntimeError error) {
+            return binary;
+        }
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr rewritten = super.visitUnaryExpr(expr);
+        if (!(rewritten instanceof Expr.Unary)) return rewritten;
+
+        Expr.Unary unary = (Expr.Unary) rewritten;
+        if (!(unary.right instanceof Expr.Literal)) return unary;
+
+        try {
+            return fold(interpreter.visitUnaryExpr(unary));
+        } catch (RuntimeError error) {
+            return unary;
+        }
+    }
+
+    // and는 왼쪽이 거짓이면, or는 참이면 왼쪽 값이 결과이고 아니면 오른쪽 식이 결과다
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        Expr rewritten = super.visitLogicalExpr(expr);
+        if (!(rewritten instanceof Expr.Logical)) return rewritten;
+
+        Expr.Logical logical = (Expr.Logical) rewritten;
+        if (!(logical.left instanceof Expr.Literal)) return logical;
+
+        boolean truthy = Interpreter.isTruthy(((Expr.Literal) logical.left).value);
+        rewrote();
+        if (logical.operator.type == TokenType.OR) {
+            return truthy ? logical.left : logical.right;
+        }
+        return truthy ? logical.right : logical.left;
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        Expr rewritten = super.visitGroupingExpr(expr);
+        if (!(rewritten instanceof Expr.Grouping)) return rewritten;
+
+        Expr.Grouping grouping = (Expr.Grouping) rewritten;
+        if (!(grouping.expression instanceof Expr.Literal)) return grouping;
+
+        rewrote();
+        return grouping.expression;
+    }
+
+    // 상수끼리 이은 문자열은 Rope로 남기지 않고 String 리터럴로 만든다
+    private Expr fold(Object value) {
+        rewrote();
+        if (value instanceof Rope) value = value.toString();
+        return new Expr.Literal(value);
+    }
+}
@@ -0,0 +1,25 @@
+package interpreter.lox;
+
+// --hot-lines에서 쓰는 트리 순회 인터프리터, 문장을 실행할 때마다 LineCounts에 줄별로 센다
+// 옵션을 끄면 이 클래스를 만들지 않으므로 Interpreter.execute에는 검사가 하나도 늘지 않는다
+final class CountingInterpreter extends Interpreter {
+    private final LineCounts counts;
+
+    CountingInterpreter(LineCounts counts) {
+        this.counts = counts;
+    }
+
+    @Override
+    Completion execute(Stmt stmt) {
+        int line = stmt.line;
+        if (line == -1) return super.execute(stmt);
+
+        long outer = counts.enter();
+        long start = System.nanoTime();
+        try {
+            return super.execute(stmt);
+        } finally {
+            counts.exit(line, outer, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package interpreter.lox;
+
+// 조건이 리터럴인 if는 실행될 가지만 남기고, 조건이 거짓 리터럴인 while은 지운다
+// ConstantFolding 뒤에 돌리면 상수식 조건도 함께 정리된다
+class DeadBranchElimination extends OptimizationPass {
+
+    @Override
+    String name() {
+        return "branches";
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        if (!(stmt.condition instanceof Expr.Literal)) return super.visitIfStmt(stmt);
+
+        rewrote();
+        if (Interpreter.isTruthy(((Expr.Literal) stmt.condition).value)) {
+            return rewrite(stmt.thenBranch);
+        }
+        return rewrite(stmt.elseBranch);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        if (stmt.condition instanceof Expr.Literal
+                && !Interpreter.isTruthy(((Expr.Literal) stmt.condition).value)) {
+            rewrote();
+            return null;
+        }
+        return super.visitWhileStmt(stmt);
+    }
+}
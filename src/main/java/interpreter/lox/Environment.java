@@ -1,40 +1,38 @@
 package interpreter.lox;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
+// 전역 변수, 지역 변수는 모두 값 스택 프레임(ValueStack)과 클로저의 Cell에 있다
+// 이름의 Symbol id를 그대로 배열 위치로 쓰므로 해시 없이 한 번에 찾는다
 public class Environment {
-    final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+    // 아직 정의되지 않은 자리, nil(null)과 구분한다
+    private static final Object UNDEFINED = new Object();
 
-    public Environment() {
-        this.enclosing = null;
-    }
-
-    public Environment(Environment enclosing) {
-        this.enclosing = enclosing;
-    }
+    private Object[] values = new Object[0];
 
     Object get(Token name) {
-        if(values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        int id = name.symbol.id;
+        if(id < values.length && values[id] != UNDEFINED) {
+            return values[id];
         }
 
-        if(enclosing != null) return enclosing.get(name);
-
         throw new RuntimeError(name, "Undefined variable '" + name.lexeme + "'.");
     }
 
+    // 전역 이름이 아직 이 선언으로 만든 함수를 가리키는지, 인라인된 호출의 가드로 쓴다
+    boolean isFunction(Token declaration) {
+        int id = declaration.symbol.id;
+        if(id >= values.length) return false;
+        Object value = values[id];
+        return value instanceof LoxFunction && ((LoxFunction) value).fn.name == declaration;
+    }
+
     // 할당 - 변수의 값을 찾아서 넣는다
     // 이미 선언된 a에 a = 5;라고 값을 넣는 행위
     void assign(Token name, Object value) {
-        if(values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
-            return;
-        }
-
-        if(enclosing != null) {
-            enclosing.assign(name, value);
+        int id = name.symbol.id;
+        if(id < values.length && values[id] != UNDEFINED) {
+            values[id] = value;
             return;
         }
 
@@ -43,23 +41,12 @@ public class Environment {
 
     // 정의 - 변수를 생성
     // int a; 또는 int a = 1; 처럼 타입과 이름을 선언
-    void define(String name, Object value) {
-        values.put(name, value);
-    }
-
-    Environment ancestor(int distance) {
-        Environment environment = this;
-        for (int i = 0; i < distance; i++) {
-            environment = environment.enclosing;
+    void define(Symbol name, Object value) {
+        if(name.id >= values.length) {
+            int length = values.length;
+            values = Arrays.copyOf(values, Math.max(name.id + 1, Symbol.count()));
+            Arrays.fill(values, length, values.length, UNDEFINED);
         }
-        return environment;
-    }
-
-    Object getAt(int distance, String name) {
-        return ancestor(distance).values.get(name);
-    }
-
-    void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+        values[name.id] = value;
     }
 }
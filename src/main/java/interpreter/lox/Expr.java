@@ -10,6 +10,7 @@ abstract class Expr {
     R visitCallExpr(Call expr);
     R visitGetExpr(Get expr);
     R visitGroupingExpr(Grouping expr);
+    R visitInlineExpr(Inline expr);
     R visitLiteralExpr(Literal expr);
     R visitLogicalExpr(Logical expr);
     R visitSetExpr(Set expr);
@@ -31,6 +32,9 @@ abstract class Expr {
 
     final Token name;
     final Expr value;
+    int slot = -1;
+    boolean upvalue;
+    boolean boxed;
   }
   static class Binary extends Expr {
    Binary(Expr left, Token operator, Expr right) {
@@ -77,6 +81,7 @@ abstract class Expr {
 
     final Expr object;
     final Token name;
+    PropertyCache cache = new PropertyCache();
   }
   static class Grouping extends Expr {
    Grouping(Expr expression) {
@@ -90,6 +95,23 @@ abstract class Expr {
 
     final Expr expression;
   }
+  static class Inline extends Expr {
+   Inline(Expr.Call call, Token function, Expr body) {
+   this.call = call;
+   this.function = function;
+   this.body = body;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+     return visitor.visitInlineExpr(this);
+    }
+
+    final Expr.Call call;
+    final Token function;
+    final Expr body;
+    boolean deoptimized;
+  }
   static class Literal extends Expr {
    Literal(Object value) {
    this.value = value;
@@ -133,6 +155,7 @@ abstract class Expr {
     final Expr object;
     final Token name;
     final Expr value;
+    PropertyCache cache = new PropertyCache();
   }
   static class Super extends Expr {
    Super(Token keyword, Token method) {
@@ -147,6 +170,8 @@ abstract class Expr {
 
     final Token keyword;
     final Token method;
+    Expr.Variable superclass;
+    Expr.This self;
   }
   static class This extends Expr {
    This(Token keyword) {
@@ -159,6 +184,9 @@ abstract class Expr {
     }
 
     final Token keyword;
+    int slot = -1;
+    boolean upvalue;
+    boolean boxed;
   }
   static class Unary extends Expr {
    Unary(Token operator, Expr right) {
@@ -185,6 +213,9 @@ abstract class Expr {
     }
 
     final Token name;
+    int slot = -1;
+    boolean upvalue;
+    boolean boxed;
   }
 
    abstract <R> R accept(Visitor<R> visitor);
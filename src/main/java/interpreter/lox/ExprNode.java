@@ -0,0 +1,805 @@
+package interpreter.lox;
+
+// NodeCompiler가 Expr마다 만들어 두는 실행 노드
+// 연산자별로 클래스를 나눠 두어 실행 중에 switch나 Visitor 이중 디스패치를 거치지 않는다
+abstract class ExprNode {
+
+    abstract Object evaluate();
+
+    // 숫자가 필요한 자리에서 박싱 없이 값을 얻는다
+    // 숫자가 아니면 UnexpectedValue에 담아 돌려주고, 에러는 호출한 쪽 연산자가 낸다
+    double evaluateDouble() {
+        Object value = evaluate();
+        if (value instanceof Double) return (double) value;
+        throw new UnexpectedValue(value);
+    }
+
+    // if, while 조건으로 쓰일 때는 Boolean을 거치지 않는다
+    boolean evaluateCondition() {
+        return Interpreter.isTruthy(evaluate());
+    }
+
+    static class Constant extends ExprNode {
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate() {
+            return value;
+        }
+
+        @Override
+        double evaluateDouble() {
+            if (value instanceof Double) return (double) value;
+            throw new UnexpectedValue(value);
+        }
+
+        final Object value;
+    }
+
+    // 지역 변수는 값 스택 프레임에서 읽는다
+    static class FrameGet extends ExprNode {
+        FrameGet(ValueStack stack, int slot) {
+            this.stack = stack;
+            this.slot = slot;
+        }
+
+        @Override
+        Object evaluate() {
+            return stack.values[stack.fp + slot];
+        }
+
+        final ValueStack stack;
+        final int slot;
+    }
+
+    // 안쪽 함수가 잡은 지역 변수는 프레임 슬롯의 Cell에 있다
+    static class CellGet extends ExprNode {
+        CellGet(ValueStack stack, int slot) {
+            this.stack = stack;
+            this.slot = slot;
+        }
+
+        @Override
+        Object evaluate() {
+            return ((Cell) stack.values[stack.fp + slot]).value;
+        }
+
+        final ValueStack stack;
+        final int slot;
+    }
+
+    // 바깥 함수의 지역 변수는 실행 중인 함수의 upvalues에서 읽는다
+    static class UpvalueGet extends ExprNode {
+        UpvalueGet(ValueStack stack, int index) {
+            this.stack = stack;
+            this.index = index;
+        }
+
+        @Override
+        Object evaluate() {
+            return stack.upvalues[index].value;
+        }
+
+        final ValueStack stack;
+        final int index;
+    }
+
+    static class GlobalGet extends ExprNode {
+        GlobalGet(Environment globals, Token name) {
+            this.globals = globals;
+            this.name = name;
+        }
+
+        @Override
+        Object evaluate() {
+            return globals.get(name);
+        }
+
+        final Environment globals;
+        final Token name;
+    }
+
+    static class FrameSet extends ExprNode {
+        FrameSet(ValueStack stack, int slot, ExprNode value) {
+            this.stack = stack;
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate() {
+            Object result = value.evaluate();
+            stack.values[stack.fp + slot] = result;
+            return result;
+        }
+
+        final ValueStack stack;
+        final int slot;
+        final ExprNode value;
+    }
+
+    static class CellSet extends ExprNode {
+        CellSet(ValueStack stack, int slot, ExprNode value) {
+            this.stack = stack;
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate() {
+            Object result = value.evaluate();
+            ((Cell) stack.values[stack.fp + slot]).value = result;
+            return result;
+        }
+
+        final ValueStack stack;
+        final int slot;
+        final ExprNode value;
+    }
+
+    static class UpvalueSet extends ExprNode {
+        UpvalueSet(ValueStack stack, int index, ExprNode value) {
+            this.stack = stack;
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate() {
+            Object result = value.evaluate();
+            stack.upvalues[index].value = result;
+            return result;
+        }
+
+        final ValueStack stack;
+        final int index;
+        final ExprNode value;
+    }
+
+    static class GlobalSet extends ExprNode {
+        GlobalSet(Environment globals, Token name, ExprNode value) {
+            this.globals = globals;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate() {
+            Object result = value.evaluate();
+            globals.assign(name, result);
+            return result;
+        }
+
+        final Environment globals;
+        final Token name;
+        final ExprNode value;
+    }
+
+    // 이항 연산 노드의 공통 필드
+    abstract static class BinaryNode extends ExprNode {
+        BinaryNode(ExprNode left, Token operator, ExprNode right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        // 왼쪽이 숫자가 아니면 원래 순서대로 오른쪽까지 평가한 뒤 에러를 낸다
+        final double leftNumber() {
+            try {
+                return left.evaluateDouble();
+            } catch (UnexpectedValue unexpected) {
+                right.evaluate();
+                throw new RuntimeError(operator, "Operand must be a number");
+            }
+        }
+
+        final double rightNumber() {
+            try {
+                return right.evaluateDouble();
+            } catch (UnexpectedValue unexpected) {
+                throw new RuntimeError(operator, "Operand must be a number");
+            }
+        }
+
+        final ExprNode left;
+        final Token operator;
+        final ExprNode right;
+    }
+
+    static class Add extends BinaryNode {
+        Add(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            Object l = left.evaluate();
+            Object r = right.evaluate();
+
+            if (l instanceof Double && r instanceof Double) {
+                return (double) l + (double) r;
+            }
+
+            if (l instanceof CharSequence && r instanceof CharSequence) {
+                return Rope.concat((CharSequence) l, (CharSequence) r);
+            }
+
+            if (l instanceof Double || r instanceof Double) {
+                return Rope.concat(Interpreter.text(l), Interpreter.text(r));
+            }
+
+            throw new RuntimeError(operator, "Operand must be a number");
+        }
+
+        // 숫자 자리에서 문자열 결합이 되면 그 결과를 UnexpectedValue로 돌려준다
+        @Override
+        double evaluateDouble() {
+            Object l = left.evaluate();
+            Object r = right.evaluate();
+            if (l instanceof Double && r instanceof Double) {
+                return (double) l + (double) r;
+            }
+
+            if (l instanceof CharSequence && r instanceof CharSequence) {
+                throw new UnexpectedValue(Rope.concat((CharSequence) l, (CharSequence) r));
+            }
+
+            if (l instanceof Double || r instanceof Double) {
+                throw new UnexpectedValue(Rope.concat(Interpreter.text(l), Interpreter.text(r)));
+            }
+
+            throw new RuntimeError(operator, "Operand must be a number");
+        }
+    }
+
+    static class Subtract extends BinaryNode {
+        Subtract(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateDouble();
+        }
+
+        @Override
+        double evaluateDouble() {
+            double l = leftNumber();
+            double r = rightNumber();
+            return l - r;
+        }
+    }
+
+    static class Multiply extends BinaryNode {
+        Multiply(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateDouble();
+        }
+
+        @Override
+        double evaluateDouble() {
+            double l = leftNumber();
+            double r = rightNumber();
+            return l * r;
+        }
+    }
+
+    static class Divide extends BinaryNode {
+        Divide(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateDouble();
+        }
+
+        @Override
+        double evaluateDouble() {
+            double l = leftNumber();
+            double r = rightNumber();
+            if (r == 0) throw new RuntimeError(operator, "0으로 나눌 수 없습니다.");
+            return l / r;
+        }
+    }
+
+    static class Greater extends BinaryNode {
+        Greater(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateCondition();
+        }
+
+        @Override
+        boolean evaluateCondition() {
+            double l = leftNumber();
+            double r = rightNumber();
+            return l > r;
+        }
+    }
+
+    static class GreaterEqual extends BinaryNode {
+        GreaterEqual(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateCondition();
+        }
+
+        @Override
+        boolean evaluateCondition() {
+            double l = leftNumber();
+            double r = rightNumber();
+            return l >= r;
+        }
+    }
+
+    static class Less extends BinaryNode {
+        Less(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateCondition();
+        }
+
+        @Override
+        boolean evaluateCondition() {
+            double l = leftNumber();
+            double r = rightNumber();
+            return l < r;
+        }
+    }
+
+    static class LessEqual extends BinaryNode {
+        LessEqual(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateCondition();
+        }
+
+        @Override
+        boolean evaluateCondition() {
+            double l = leftNumber();
+            double r = rightNumber();
+            return l <= r;
+        }
+    }
+
+    static class Equal extends BinaryNode {
+        Equal(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return Interpreter.isEqual(left.evaluate(), right.evaluate());
+        }
+    }
+
+    static class NotEqual extends BinaryNode {
+        NotEqual(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object evaluate() {
+            return !Interpreter.isEqual(left.evaluate(), right.evaluate());
+        }
+    }
+
+    static class Negate extends ExprNode {
+        Negate(Token operator, ExprNode right) {
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate() {
+            return evaluateDouble();
+        }
+
+        @Override
+        double evaluateDouble() {
+            try {
+                return -right.evaluateDouble();
+            } catch (UnexpectedValue unexpected) {
+                throw new RuntimeError(operator, "Operand must be a number");
+            }
+        }
+
+        final Token operator;
+        final ExprNode right;
+    }
+
+    static class Not extends ExprNode {
+        Not(ExprNode right) {
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate() {
+            return !right.evaluateCondition();
+        }
+
+        @Override
+        boolean evaluateCondition() {
+            return !right.evaluateCondition();
+        }
+
+        final ExprNode right;
+    }
+
+    static class And extends ExprNode {
+        And(ExprNode left, ExprNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate() {
+            Object value = left.evaluate();
+            if (!Interpreter.isTruthy(value)) return value;
+            return right.evaluate();
+        }
+
+        @Override
+        boolean evaluateCondition() {
+            return left.evaluateCondition() && right.evaluateCondition();
+        }
+
+        final ExprNode left;
+        final ExprNode right;
+    }
+
+    static class Or extends ExprNode {
+        Or(ExprNode left, ExprNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate() {
+            Object value = left.evaluate();
+            if (Interpreter.isTruthy(value)) return value;
+            return right.evaluate();
+        }
+
+        @Override
+        boolean evaluateCondition() {
+            return left.evaluateCondition() || right.evaluateCondition();
+        }
+
+        final ExprNode left;
+        final ExprNode right;
+    }
+
+    // 꼬리 호출 자리에 올 수 있는 호출 노드, StmtNode.TailReturn이 부른다
+    abstract static class Calling extends ExprNode {
+        // 호출 대상과 인자를 evaluate와 같은 순서로 평가하고 검사까지만 한다, Interpreter.tailCall과 같다
+        abstract TailCall tailCall();
+    }
+
+    static class Call extends Calling {
+        Call(ExprNode callee, Token paren, ExprNode[] arguments) {
+            this.callee = callee;
+            this.paren = paren;
+            this.arguments = arguments;
+        }
+
+        @Override
+        Object evaluate() {
+            return call(callee.evaluate(), paren, arguments);
+        }
+
+        @Override
+        TailCall tailCall() {
+            return tailCall(callee.evaluate(), paren, arguments);
+        }
+
+        static TailCall tailCall(Object function, Token paren, ExprNode[] arguments) {
+            Object[] values = evaluateAll(arguments);
+            LoxCallable callable = callable(function, paren, values.length);
+            LoxInstance receiver = null;
+            if (callable instanceof LoxFunction) receiver = ((LoxFunction) callable).receiver;
+            return new TailCall(callable, receiver, values);
+        }
+
+        // 인자 4개까지는 개수별 진입점으로 넘긴다, NodeFunction은 Interpreter를 쓰지 않는다
+        static Object call(Object function, Token paren, ExprNode[] arguments) {
+            switch (arguments.length) {
+                case 0:
+                    return callable(function, paren, 0).call0(null);
+                case 1: {
+                    Object a = arguments[0].evaluate();
+                    return callable(function, paren, 1).call1(null, a);
+                }
+                case 2: {
+                    Object a = arguments[0].evaluate();
+                    Object b = arguments[1].evaluate();
+                    return callable(function, paren, 2).call2(null, a, b);
+                }
+                case 3: {
+                    Object a = arguments[0].evaluate();
+                    Object b = arguments[1].evaluate();
+                    Object c = arguments[2].evaluate();
+                    return callable(function, paren, 3).call3(null, a, b, c);
+                }
+                case 4: {
+                    Object a = arguments[0].evaluate();
+                    Object b = arguments[1].evaluate();
+                    Object c = arguments[2].evaluate();
+                    Object d = arguments[3].evaluate();
+                    return callable(function, paren, 4).call4(null, a, b, c, d);
+                }
+                default: {
+                    Object[] values = evaluateAll(arguments);
+                    return callable(function, paren, values.length).call(null, values);
+                }
+            }
+        }
+
+        static Object invoke(LoxFunction method, LoxInstance instance, Token paren,
+                             ExprNode[] arguments) {
+            switch (arguments.length) {
+                case 0:
+                    checkArity(paren, method, 0);
+                    return method.invoke0(null, instance);
+                case 1: {
+                    Object a = arguments[0].evaluate();
+                    checkArity(paren, method, 1);
+                    return method.invoke1(null, instance, a);
+                }
+                case 2: {
+                    Object a = arguments[0].evaluate();
+                    Object b = arguments[1].evaluate();
+                    checkArity(paren, method, 2);
+                    return method.invoke2(null, instance, a, b);
+                }
+                case 3: {
+                    Object a = arguments[0].evaluate();
+                    Object b = arguments[1].evaluate();
+                    Object c = arguments[2].evaluate();
+                    checkArity(paren, method, 3);
+                    return method.invoke3(null, instance, a, b, c);
+                }
+                case 4: {
+                    Object a = arguments[0].evaluate();
+                    Object b = arguments[1].evaluate();
+                    Object c = arguments[2].evaluate();
+                    Object d = arguments[3].evaluate();
+                    checkArity(paren, method, 4);
+                    return method.invoke4(null, instance, a, b, c, d);
+                }
+                default: {
+                    Object[] values = evaluateAll(arguments);
+                    checkArity(paren, method, values.length);
+                    return method.invoke(null, instance, values);
+                }
+            }
+        }
+
+        static LoxCallable callable(Object function, Token paren, int count) {
+            if (!(function instanceof LoxCallable)) {
+                throw new RuntimeError(paren, "Can only call functions and classes.");
+            }
+
+            LoxCallable callable = (LoxCallable) function;
+            checkArity(paren, callable, count);
+            return callable;
+        }
+
+        static Object[] evaluateAll(ExprNode[] arguments) {
+            Object[] values = new Object[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = arguments[i].evaluate();
+            }
+            return values;
+        }
+
+        static void checkArity(Token paren, LoxCallable callable, int count) {
+            if (count != callable.arity()) {
+                throw new RuntimeError(paren, "Expected" +
+                        callable.arity() + "arguments but got " + count + ".");
+            }
+        }
+
+        final ExprNode callee;
+        final Token paren;
+        final ExprNode[] arguments;
+    }
+
+    // obj.name(...), 메서드로 풀리면 bound method를 만들지 않고 this를 넘겨 바로 호출한다
+    static class Invoke extends Calling {
+        Invoke(ExprNode object, Token name, Token paren, ExprNode[] arguments) {
+            this.object = object;
+            this.name = name;
+            this.paren = paren;
+            this.arguments = arguments;
+        }
+
+        @Override
+        Object evaluate() {
+            Object value = object.evaluate();
+            if (!(value instanceof LoxInstance)) {
+                throw new RuntimeError(name, "Only instances have properties");
+            }
+
+            LoxInstance instance = (LoxInstance) value;
+            LoxFunction method = cache.method(instance, name);
+            if (method == null) {
+                return Call.call(cache.get(instance, name), paren, arguments);
+            }
+
+            return Call.invoke(method, instance, paren, arguments);
+        }
+
+        @Override
+        TailCall tailCall() {
+            Object value = object.evaluate();
+            if (!(value instanceof LoxInstance)) {
+                throw new RuntimeError(name, "Only instances have properties");
+            }
+
+            LoxInstance instance = (LoxInstance) value;
+            LoxFunction method = cache.method(instance, name);
+            if (method == null) {
+                return Call.tailCall(cache.get(instance, name), paren, arguments);
+            }
+
+            Object[] values = Call.evaluateAll(arguments);
+            Call.checkArity(paren, method, values.length);
+            return new TailCall(method, instance, values);
+        }
+
+        final ExprNode object;
+        final Token name;
+        final Token paren;
+        final ExprNode[] arguments;
+        final PropertyCache cache = new PropertyCache();
+    }
+
+    // super.name(...)
+    static class SuperInvoke extends Calling {
+        SuperInvoke(Super method, Token paren, ExprNode[] arguments) {
+            this.method = method;
+            this.paren = paren;
+            this.arguments = arguments;
+        }
+
+        @Override
+        Object evaluate() {
+            LoxFunction function = method.find();
+            LoxInstance object = (LoxInstance) method.self.evaluate();
+
+            return Call.invoke(function, object, paren, arguments);
+        }
+
+        @Override
+        TailCall tailCall() {
+            LoxFunction function = method.find();
+            LoxInstance object = (LoxInstance) method.self.evaluate();
+            Object[] values = Call.evaluateAll(arguments);
+            Call.checkArity(paren, function, values.length);
+            return new TailCall(function, object, values);
+        }
+
+        final Super method;
+        final Token paren;
+        final ExprNode[] arguments;
+    }
+
+    // 인라인된 전역 함수 호출, Interpreter.visitInlineExpr와 같다
+    static class Inline extends ExprNode {
+        Inline(Environment globals, Token function, ExprNode call, ExprNode body) {
+            this.globals = globals;
+            this.function = function;
+            this.call = call;
+            this.body = body;
+        }
+
+        @Override
+        Object evaluate() {
+            if (!deoptimized) {
+                if (globals.isFunction(function)) return body.evaluate();
+                deoptimized = true;
+            }
+            return call.evaluate();
+        }
+
+        final Environment globals;
+        final Token function;
+        final ExprNode call;
+        final ExprNode body;
+        boolean deoptimized = false;
+    }
+
+    static class Get extends ExprNode {
+        Get(ExprNode object, Token name) {
+            this.object = object;
+            this.name = name;
+        }
+
+        @Override
+        Object evaluate() {
+            Object value = object.evaluate();
+            if (value instanceof LoxInstance) {
+                return cache.get((LoxInstance) value, name);
+            }
+
+            throw new RuntimeError(name, "Only instances have properties");
+        }
+
+        final ExprNode object;
+        final Token name;
+        final PropertyCache cache = new PropertyCache();
+    }
+
+    static class Set extends ExprNode {
+        Set(ExprNode object, Token name, ExprNode value) {
+            this.object = object;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate() {
+            Object target = object.evaluate();
+
+            if (!(target instanceof LoxInstance)) {
+                throw new RuntimeError(name, "Only instances have fields.");
+            }
+
+            Object result = value.evaluate();
+            cache.set((LoxInstance) target, name, result);
+            return result;
+        }
+
+        final ExprNode object;
+        final Token name;
+        final ExprNode value;
+        final PropertyCache cache = new PropertyCache();
+    }
+
+    static class Super extends ExprNode {
+        // superclass는 상위 클래스, self는 찾은 메서드에 넘길 this를 읽는 노드
+        Super(ExprNode superclass, ExprNode self, Token method) {
+            this.superclass = superclass;
+            this.self = self;
+            this.method = method;
+        }
+
+        @Override
+        Object evaluate() {
+            LoxInstance object = (LoxInstance) self.evaluate();
+            return find().bind(object);
+        }
+
+        LoxFunction find() {
+            LoxFunction function = ((LoxClass) superclass.evaluate()).findMethod(method.symbol);
+            if (function == null) {
+                throw new RuntimeError(method, "Undefined property '" + method.lexeme + "'.");
+            }
+            return function;
+        }
+
+        final ExprNode superclass;
+        final ExprNode self;
+        final Token method;
+    }
+}
@@ -0,0 +1,282 @@
+package interpreter.lox;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 본문이 return <식>; 하나뿐인 작은 전역 함수의 호출을 본문 식으로 바꾼다
+// - 이름을 다시 선언하거나 대입하는 곳이 없고, 본문이 자기 자신을 부르지 않는 함수만 고른다
+// - 인자는 매개변수 자리에 그대로 끼워 넣으므로 부작용 없는 인자(리터럴, 변수, this)만 받는다
+//   본문에 호출이나 필드 대입이 있으면 그 사이에 변수 값이 바뀔 수 있어 리터럴 인자만 받는다
+// - 전역 변수 인자는 없는 이름이면 호출 전에 에러가 나야 하므로, 본문이 다른 에러를 낼 수 있는 식보다 먼저
+//   인자 순서대로 조건 없이 한 번씩 읽을 때만 받는다(쓰지 않는 인자도 평가되어야 한다)
+// - 실행 중에 전역 이름이 다른 값으로 바뀌면 Expr.Inline이 원래 호출로 되돌아간다
+class Inlining extends OptimizationPass {
+    // 본문 식의 노드 수 상한
+    private static final int MAX_SIZE = 16;
+
+    private final Map<Symbol, Stmt.Function> candidates = new HashMap<>();
+
+    @Override
+    String name() {
+        return "inline";
+    }
+
+    @Override
+    List<Stmt> run(List<Stmt> statements) {
+        candidates.clear();
+        findCandidates(statements);
+        if (candidates.isEmpty()) return statements;
+        return super.run(statements);
+    }
+
+    private void findCandidates(List<Stmt> statements) {
+        Set<Symbol> declaredTwice = new HashSet<>();
+        Set<Symbol> declared = new HashSet<>();
+        for (Stmt stmt : statements) {
+            Symbol name = declaredName(stmt);
+            if (name != null && !declared.add(name)) declaredTwice.add(name);
+        }
+
+        for (Stmt stmt : statements) {
+            if (!(stmt instanceof Stmt.Function)) continue;
+
+            Stmt.Function function = (Stmt.Function) stmt;
+            Expr body = returnedExpression(function);
+            if (body == null || declaredTwice.contains(function.name.symbol)) continue;
+
+            Scan scan = new Scan(function.name.symbol);
+            scan.rewrite(body);
+            if (scan.size <= MAX_SIZE && !scan.recursive && !scan.assigns) {
+                candidates.put(function.name.symbol, function);
+            }
+        }
+
+        // 프로그램 어디서든 전역 이름에 대입하면 후보에서 뺀다
+        new GlobalAssignments().run(statements);
+    }
+
+    private static Symbol declaredName(Stmt stmt) {
+        if (stmt instanceof Stmt.Function) return ((Stmt.Function) stmt).name.symbol;
+        if (stmt instanceof Stmt.Var) return ((Stmt.Var) stmt).name.symbol;
+        if (stmt instanceof Stmt.Class) return ((Stmt.Class) stmt).name.symbol;
+        return null;
+    }
+
+    private static Expr returnedExpression(Stmt.Function function) {
+        if (function.body.size() != 1 || !(function.body.get(0) instanceof Stmt.Return)) return null;
+        return ((Stmt.Return) function.body.get(0)).value;
+    }
+
+    @Override
+    public Expr visitCallExpr(Expr.Call expr) {
+        Expr.Call call = (Expr.Call) super.visitCallExpr(expr);
+        if (!(call.callee instanceof Expr.Variable)) return call;
+
+        Expr.Variable callee = (Expr.Variable) call.callee;
+        Stmt.Function function = candidates.get(callee.name.symbol);
+        if (callee.slot != -1 || function == null || call.arguments.size() != function.params.size()) {
+            return call;
+        }
+
+        Expr body = returnedExpression(function);
+        Scan scan = new Scan(function.name.symbol);
+        scan.rewrite(body);
+        boolean[] global = new boolean[call.arguments.size()];
+        for (int i = 0; i < global.length; i++) {
+            Expr argument = call.arguments.get(i);
+            boolean literal = argument instanceof Expr.Literal;
+            boolean variable = argument instanceof Expr.Variable || argument instanceof Expr.This;
+            if (!literal && (scan.effects || !variable)) return call;
+            global[i] = argument instanceof Expr.Variable && ((Expr.Variable) argument).slot == -1;
+        }
+        if (!new GlobalReads(global).check(body)) return call;
+
+        rewrote();
+        return new Expr.Inline(call, function.name, new Substitution(call.arguments).rewrite(body));
+    }
+
+    // 본문 식의 크기와 인라인해도 되는지를 본다
+    private static class Scan extends OptimizationPass {
+        private final Symbol self;
+        int size = 0;
+        boolean recursive = false;
+        boolean assigns = false;
+        // 호출이나 필드 대입처럼 변수 값을 바꿀 수 있는 식
+        boolean effects = false;
+
+        Scan(Symbol self) {
+            this.self = self;
+        }
+
+        @Override
+        String name() {
+            return "scan";
+        }
+
+        @Override
+        Expr rewrite(Expr expr) {
+            if (expr != null) size++;
+            return super.rewrite(expr);
+        }
+
+        @Override
+        public Expr visitVariableExpr(Expr.Variable expr) {
+            if (expr.slot == -1 && expr.name.symbol == self) recursive = true;
+            return expr;
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            assigns = true;
+            return super.visitAssignExpr(expr);
+        }
+
+        @Override
+        public Expr visitCallExpr(Expr.Call expr) {
+            effects = true;
+            return super.visitCallExpr(expr);
+        }
+
+        @Override
+        public Expr visitSetExpr(Expr.Set expr) {
+            effects = true;
+            return super.visitSetExpr(expr);
+        }
+
+        @Override
+        public Expr visitSuperExpr(Expr.Super expr) {
+            recursive = true;
+            return expr;
+        }
+    }
+
+    // 전역 변수 인자를 받는 매개변수를 본문이 인자를 미리 평가한 것과 같은 순서로 읽는지 본다
+    // 본문은 실행 순서대로 훑는다, 연산자, 필드 읽기, 호출, 본문의 전역 읽기는 에러를 낼 수 있는 곳으로 본다
+    private static class GlobalReads extends OptimizationPass {
+        private final boolean[] global;
+        private final boolean[] read;
+        private int last = -1;
+        private int conditional = 0;
+        private boolean mayThrow = false;
+        private boolean ok = true;
+
+        GlobalReads(boolean[] global) {
+            this.global = global;
+            this.read = new boolean[global.length];
+        }
+
+        @Override
+        String name() {
+            return "global reads";
+        }
+
+        boolean check(Expr body) {
+            rewrite(body);
+            for (int i = 0; i < global.length; i++) {
+                if (global[i] && !read[i]) return false;
+            }
+            return ok;
+        }
+
+        @Override
+        public Expr visitVariableExpr(Expr.Variable expr) {
+            if (expr.slot == -1) {
+                mayThrow = true;
+            } else if (global[expr.slot]) {
+                if (read[expr.slot] || expr.slot < last || conditional > 0 || mayThrow) ok = false;
+                read[expr.slot] = true;
+                last = expr.slot;
+            }
+            return expr;
+        }
+
+        // 오른쪽은 왼쪽 값에 따라 건너뛸 수 있다
+        @Override
+        public Expr visitLogicalExpr(Expr.Logical expr) {
+            rewrite(expr.left);
+            conditional++;
+            rewrite(expr.right);
+            conditional--;
+            return expr;
+        }
+
+        @Override
+        public Expr visitBinaryExpr(Expr.Binary expr) {
+            super.visitBinaryExpr(expr);
+            mayThrow = true;
+            return expr;
+        }
+
+        @Override
+        public Expr visitUnaryExpr(Expr.Unary expr) {
+            super.visitUnaryExpr(expr);
+            mayThrow = true;
+            return expr;
+        }
+
+        @Override
+        public Expr visitGetExpr(Expr.Get expr) {
+            super.visitGetExpr(expr);
+            mayThrow = true;
+            return expr;
+        }
+
+        @Override
+        public Expr visitCallExpr(Expr.Call expr) {
+            super.visitCallExpr(expr);
+            mayThrow = true;
+            return expr;
+        }
+
+        @Override
+        public Expr visitSetExpr(Expr.Set expr) {
+            super.visitSetExpr(expr);
+            mayThrow = true;
+            return expr;
+        }
+
+        @Override
+        public Expr visitInlineExpr(Expr.Inline expr) {
+            super.visitInlineExpr(expr);
+            mayThrow = true;
+            return expr;
+        }
+    }
+
+    // 전역 이름에 대입하는 곳을 찾아 후보에서 뺀다
+    private class GlobalAssignments extends OptimizationPass {
+        @Override
+        String name() {
+            return "assignments";
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            if (expr.slot == -1) candidates.remove(expr.name.symbol);
+            return super.visitAssignExpr(expr);
+        }
+    }
+
+    // 본문의 매개변수 읽기(함수 프레임의 슬롯)를 호출 인자로 바꾼다
+    private static class Substitution extends OptimizationPass {
+        private final List<Expr> arguments;
+
+        Substitution(List<Expr> arguments) {
+            this.arguments = arguments;
+        }
+
+        @Override
+        String name() {
+            return "substitution";
+        }
+
+        @Override
+        public Expr visitVariableExpr(Expr.Variable expr) {
+            if (expr.slot != -1) return arguments.get(expr.slot);
+            return expr;
+        }
+    }
+}
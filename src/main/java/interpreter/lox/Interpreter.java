@@ -1,18 +1,32 @@
 package interpreter.lox;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
+public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Completion> {
 
     // native function
     final Environment globals = new Environment();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
+    // 지역 변수는 값 스택 프레임에, 클로저가 잡은 변수는 프레임 슬롯과 upvalues가 나눠 갖는 Cell에 있다
+    final ValueStack stack = new ValueStack();
+    // --jit 옵션을 주면 함수 선언을 JVM 클래스로 컴파일해 본다
+    private JvmCompiler jit = null;
+    // RETURN으로 끝난 함수 본문의 반환 값이나 꼬리 호출, LoxFunction.run이 꺼내 간다
+    private Object returnValue = null;
+    private TailCall tailCall = null;
 
-    void interpret(List<Stmt> statements) {
+    void enableJit() {
+        jit = new JvmCompiler(globals);
+    }
+
+    boolean jitEnabled() {
+        return jit != null;
+    }
+
+    // frameSize는 최상위 코드의 블록이 쓰는 프레임 크기(Resolver.frameSize)
+    void interpret(List<Stmt> statements, int frameSize) {
+        stack.resize(frameSize);
         try {
             for (Stmt statement : statements) {
                 execute(statement);
@@ -24,14 +38,19 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     Interpreter() {
         // native function, clock
-        globals.define("clock", new LoxCallable() {
+        globals.define(Symbol.intern("clock"), new LoxCallable() {
             @Override
             public int arity() {
                 return 0;
             }
 
             @Override
-            public Object call(Interpreter interpreter, List<Object> arguments) {
+            public Object call(Interpreter interpreter, Object[] arguments) {
+                return call0(interpreter);
+            }
+
+            @Override
+            public Object call0(Interpreter interpreter) {
                 return (double) System.currentTimeMillis() / 1000.0;
             }
 
@@ -45,56 +64,29 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Object visitBinaryExpr(Expr.Binary expr) {
 
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
-
         switch (expr.operator.type) {
+            // 산술, 비교는 중간 값을 박싱하지 않고 계산한 뒤 결과만 박싱한다
             case GREATER:
-                checkNumberOperand(expr.operator, left, right);
-                return (double) left > (double) right;
             case GREATER_EQUAL:
-                checkNumberOperand(expr.operator, left, right);
-                return (double) left >= (double) right;
             case LESS:
-                checkNumberOperand(expr.operator, left, right);
-                return (double) left < (double) right;
             case LESS_EQUAL:
-                checkNumberOperand(expr.operator, left, right);
-                return (double) left <= (double) right;
+                return compare(expr);
             case MINUS:
-                checkNumberOperand(expr.operator, left, right);
-                return (double) left - (double) right;
+            case SLASH:
+            case STAR:
+                return arithmetic(expr);
             case PLUS:
-                if (left instanceof Double && right instanceof Double) {
-                    return (double) left + (double) right;
-                }
-
-                if (left instanceof String && right instanceof String) {
-                    return (String) left + (String) right;
+                if (isArithmetic(expr.left) && isArithmetic(expr.right)) {
+                    return evaluateDouble(expr.left) + evaluateDouble(expr.right);
                 }
+        }
 
-                // 멍청한 방법
-//                if (left instanceof Double && right instanceof String) {
-//                    String parsedLeft = left.toString();
-//                    return parsedLeft.substring(0, parsedLeft.length() - 2) + right;
-//                }
-//
-//                if (left instanceof String && right instanceof Double) {
-//                    String parsedRight = right.toString();
-//                    return left + parsedRight.substring(0, parsedRight.length() - 2);
-//                }
+        Object left = evaluate(expr.left);
+        Object right = evaluate(expr.right);
 
-                if (left instanceof Double || right instanceof Double) {
-                    return stringify(left) + stringify(right);
-                }
-//                throw new RuntimeError(expr.operator, "Operand must be two numbers or two strings.");
-            case SLASH:
-                checkNumberOperand(expr.operator, left, right);
-                checkRightOperand(expr.operator, right);
-                return (double) left / (double) right;
-            case STAR:
-                checkNumberOperand(expr.operator, left, right);
-                return (double) left * (double) right;
+        switch (expr.operator.type) {
+            case PLUS:
+                return add(expr.operator, left, right);
             case BANG_EQUAL:
                 return !isEqual(left, right);
             case EQUAL:
@@ -105,34 +97,341 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
+    private Object add(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return (double) left + (double) right;
+        }
+
+        if (left instanceof CharSequence && right instanceof CharSequence) {
+            return Rope.concat((CharSequence) left, (CharSequence) right);
+        }
+
+        // 멍청한 방법
+//        if (left instanceof Double && right instanceof String) {
+//            String parsedLeft = left.toString();
+//            return parsedLeft.substring(0, parsedLeft.length() - 2) + right;
+//        }
+//
+//        if (left instanceof String && right instanceof Double) {
+//            String parsedRight = right.toString();
+//            return left + parsedRight.substring(0, parsedRight.length() - 2);
+//        }
+
+        if (left instanceof Double || right instanceof Double) {
+            return Rope.concat(text(left), text(right));
+        }
+
+//        throw new RuntimeError(operator, "Operand must be two numbers or two strings.");
+        throw new RuntimeError(operator, "Operand must be a number");
+    }
+
+    // 결과가 숫자이거나 RuntimeError를 던지는 식, evaluateDouble이 UnexpectedValue를 던지지 않는다
+    private boolean isArithmetic(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            TokenType type = ((Expr.Binary) expr).operator.type;
+            return type == TokenType.MINUS || type == TokenType.STAR || type == TokenType.SLASH;
+        }
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator.type == TokenType.MINUS;
+        }
+        if (expr instanceof Expr.Grouping) {
+            return isArithmetic(((Expr.Grouping) expr).expression);
+        }
+        return expr instanceof Expr.Literal && ((Expr.Literal) expr).value instanceof Double;
+    }
+
+    // 숫자가 필요한 자리의 피연산자를 박싱 없이 평가한다
+    // 숫자가 아닌 값이 나오면 UnexpectedValue에 담아 돌려주고, 에러는 호출한 쪽 연산자가 낸다
+    private double evaluateDouble(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            switch (binary.operator.type) {
+                case MINUS:
+                case SLASH:
+                case STAR:
+                    return arithmetic(binary);
+                case PLUS:
+                    return plusDouble(binary);
+            }
+        } else if (expr instanceof Expr.Unary) {
+            Expr.Unary unary = (Expr.Unary) expr;
+            if (unary.operator.type == TokenType.MINUS) {
+                try {
+                    return -evaluateDouble(unary.right);
+                } catch (UnexpectedValue unexpected) {
+                    throw new RuntimeError(unary.operator, "Operand must be a number");
+                }
+            }
+        } else if (expr instanceof Expr.Grouping) {
+            return evaluateDouble(((Expr.Grouping) expr).expression);
+        } else if (expr instanceof Expr.Literal && ((Expr.Literal) expr).value instanceof Double) {
+            return (double) ((Expr.Literal) expr).value;
+        }
+
+        Object value = evaluate(expr);
+        if (value instanceof Double) return (double) value;
+        throw new UnexpectedValue(value);
+    }
+
+    // 숫자 자리에 온 +, 문자열 결합이 되면 그 결과를 UnexpectedValue로 돌려준다
+    private double plusDouble(Expr.Binary expr) {
+        if (isArithmetic(expr.left) && isArithmetic(expr.right)) {
+            return evaluateDouble(expr.left) + evaluateDouble(expr.right);
+        }
+
+        Object left = evaluate(expr.left);
+        Object right = evaluate(expr.right);
+        if (left instanceof Double && right instanceof Double) {
+            return (double) left + (double) right;
+        }
+        throw new UnexpectedValue(add(expr.operator, left, right));
+    }
+
+    private double arithmetic(Expr.Binary expr) {
+        double left;
+        double right;
+        try {
+            left = evaluateDouble(expr.left);
+        } catch (UnexpectedValue unexpected) {
+            // 원래 순서대로 오른쪽까지 평가한 뒤 에러를 낸다
+            evaluate(expr.right);
+            throw new RuntimeError(expr.operator, "Operand must be a number");
+        }
+        try {
+            right = evaluateDouble(expr.right);
+        } catch (UnexpectedValue unexpected) {
+            throw new RuntimeError(expr.operator, "Operand must be a number");
+        }
+
+        switch (expr.operator.type) {
+            case MINUS:
+                return left - right;
+            case SLASH:
+                checkRightOperand(expr.operator, right);
+                return left / right;
+            default:
+                return left * right;
+        }
+    }
+
+    private boolean compare(Expr.Binary expr) {
+        double left;
+        double right;
+        try {
+            left = evaluateDouble(expr.left);
+        } catch (UnexpectedValue unexpected) {
+            evaluate(expr.right);
+            throw new RuntimeError(expr.operator, "Operand must be a number");
+        }
+        try {
+            right = evaluateDouble(expr.right);
+        } catch (UnexpectedValue unexpected) {
+            throw new RuntimeError(expr.operator, "Operand must be a number");
+        }
+
+        switch (expr.operator.type) {
+            case GREATER:
+                return left > right;
+            case GREATER_EQUAL:
+                return left >= right;
+            case LESS:
+                return left < right;
+            default:
+                return left <= right;
+        }
+    }
+
+    // if, while 조건이 비교식이면 Boolean을 거치지 않는다
+    private boolean evaluateCondition(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            switch (((Expr.Binary) expr).operator.type) {
+                case GREATER:
+                case GREATER_EQUAL:
+                case LESS:
+                case LESS_EQUAL:
+                    return compare((Expr.Binary) expr);
+            }
+        }
+        return isTruthy(evaluate(expr));
+    }
+
     @Override
     public Object visitCallExpr(Expr.Call expr) {
-        Object callee = evaluate(expr.callee);
+        // obj.method(...), super.method(...)는 bound method를 만들지 않고 this를 넘겨 바로 호출한다
+        if(expr.callee instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get) expr.callee;
+            Object object = evaluate(get.object);
+            if(object instanceof LoxInstance) {
+                LoxFunction method = get.cache.method((LoxInstance) object, get.name);
+                if(method != null) {
+                    return invoke(expr, method, (LoxInstance) object);
+                }
+            }
+            return call(expr, property(get, object));
+        }
+
+        if(expr.callee instanceof Expr.Super) {
+            Expr.Super callee = (Expr.Super) expr.callee;
+            return invoke(expr, superMethod(callee), self(callee));
+        }
+
+        return call(expr, evaluate(expr.callee));
+    }
 
-        List<Object> arguments = new ArrayList<>();
-        for(Expr argument : expr.arguments) {
-            arguments.add(evaluate(argument));
+    // 인자 4개까지는 지역 변수로 평가해 개수별 진입점으로 넘긴다
+    private Object call(Expr.Call expr, Object callee) {
+        List<Expr> arguments = expr.arguments;
+        switch(arguments.size()) {
+            case 0:
+                return callable(expr, callee, 0).call0(this);
+            case 1: {
+                Object a = evaluate(arguments.get(0));
+                return callable(expr, callee, 1).call1(this, a);
+            }
+            case 2: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                return callable(expr, callee, 2).call2(this, a, b);
+            }
+            case 3: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                Object c = evaluate(arguments.get(2));
+                return callable(expr, callee, 3).call3(this, a, b, c);
+            }
+            case 4: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                Object c = evaluate(arguments.get(2));
+                Object d = evaluate(arguments.get(3));
+                return callable(expr, callee, 4).call4(this, a, b, c, d);
+            }
+            default: {
+                Object[] values = evaluateArguments(expr);
+                return callable(expr, callee, values.length).call(this, values);
+            }
         }
+    }
 
+    private LoxCallable callable(Expr.Call expr, Object callee, int count) {
         if(!(callee instanceof LoxCallable)) {
             throw new RuntimeError(expr.paren,
                     "Can only call functions and classes.");
         }
 
         LoxCallable function = (LoxCallable) callee;
-        if(arguments.size() != function.arity()) {
-            throw new RuntimeError(expr.paren, "Expected" +
-                    function.arity() + "arguments but got " + arguments.size() + ".");
+        checkArity(expr.paren, function, count);
+        return function;
+    }
+
+    private Object invoke(Expr.Call expr, LoxFunction method, LoxInstance object) {
+        List<Expr> arguments = expr.arguments;
+        switch(arguments.size()) {
+            case 0:
+                checkArity(expr.paren, method, 0);
+                return method.invoke0(this, object);
+            case 1: {
+                Object a = evaluate(arguments.get(0));
+                checkArity(expr.paren, method, 1);
+                return method.invoke1(this, object, a);
+            }
+            case 2: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                checkArity(expr.paren, method, 2);
+                return method.invoke2(this, object, a, b);
+            }
+            case 3: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                Object c = evaluate(arguments.get(2));
+                checkArity(expr.paren, method, 3);
+                return method.invoke3(this, object, a, b, c);
+            }
+            case 4: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                Object c = evaluate(arguments.get(2));
+                Object d = evaluate(arguments.get(3));
+                checkArity(expr.paren, method, 4);
+                return method.invoke4(this, object, a, b, c, d);
+            }
+            default: {
+                Object[] values = evaluateArguments(expr);
+                checkArity(expr.paren, method, values.length);
+                return method.invoke(this, object, values);
+            }
+        }
+    }
+
+    // 꼬리 호출은 호출 대상과 인자까지만 평가하고 실제 호출은 LoxFunction.run에 맡긴다
+    // 평가와 검사 순서는 visitCallExpr와 같다
+    private TailCall tailCall(Expr.Call expr) {
+        Object callee;
+        if(expr.callee instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get) expr.callee;
+            Object object = evaluate(get.object);
+            if(object instanceof LoxInstance) {
+                LoxFunction method = get.cache.method((LoxInstance) object, get.name);
+                if(method != null) {
+                    Object[] arguments = evaluateArguments(expr);
+                    checkArity(expr.paren, method, arguments.length);
+                    return new TailCall(method, (LoxInstance) object, arguments);
+                }
+            }
+            callee = property(get, object);
+        } else if(expr.callee instanceof Expr.Super) {
+            Expr.Super superExpr = (Expr.Super) expr.callee;
+            LoxFunction method = superMethod(superExpr);
+            LoxInstance object = self(superExpr);
+            Object[] arguments = evaluateArguments(expr);
+            checkArity(expr.paren, method, arguments.length);
+            return new TailCall(method, object, arguments);
+        } else {
+            callee = evaluate(expr.callee);
+        }
+
+        Object[] arguments = evaluateArguments(expr);
+        LoxCallable function = callable(expr, callee, arguments.length);
+        LoxInstance receiver = null;
+        if(function instanceof LoxFunction) receiver = ((LoxFunction) function).receiver;
+        return new TailCall(function, receiver, arguments);
+    }
+
+    private Object[] evaluateArguments(Expr.Call expr) {
+        Object[] arguments = new Object[expr.arguments.size()];
+        for(int i = 0; i < arguments.length; i++) {
+            arguments[i] = evaluate(expr.arguments.get(i));
+        }
+        return arguments;
+    }
+
+    private void checkArity(Token paren, LoxCallable function, int count) {
+        if(count != function.arity()) {
+            throw new RuntimeError(paren, "Expected" +
+                    function.arity() + "arguments but got " + count + ".");
         }
+    }
 
-        return function.call(this, arguments);
+    // 인라인된 전역 함수 호출, 전역 이름이 그 함수를 가리킬 때만 본문을 바로 평가한다
+    // 다른 값으로 바뀌었으면 이후로는 원래 호출로 되돌린다
+    @Override
+    public Object visitInlineExpr(Expr.Inline expr) {
+        if(!expr.deoptimized) {
+            if(globals.isFunction(expr.function)) return evaluate(expr.body);
+            expr.deoptimized = true;
+        }
+        return evaluate(expr.call);
     }
 
     @Override
     public Object visitGetExpr(Expr.Get expr) {
-        Object object = evaluate(expr.object);
+        return property(expr, evaluate(expr.object));
+    }
+
+    private Object property(Expr.Get expr, Object object) {
         if(object instanceof LoxInstance) {
-            return ((LoxInstance) object).get(expr.name);
+            return expr.cache.get((LoxInstance) object, expr.name);
         }
 
         throw new RuntimeError(expr.name, "Only instances have properties");
@@ -147,35 +446,40 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return expr.accept(this);
     }
 
-    private void execute(Stmt stmt) {
-        stmt.accept(this);
+    // --hot-lines에서는 CountingInterpreter가 덮어써 문장마다 센다
+    Completion execute(Stmt stmt) {
+        return stmt.accept(this);
     }
 
-    void resolve(Expr expr, int depth) {
-        locals.put(expr, depth);
+    // return을 만나면 남은 문장을 건너뛰고 RETURN을 돌려준다
+    Completion executeBlock(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (execute(statement) == Completion.RETURN) return Completion.RETURN;
+        }
+        return Completion.NORMAL;
     }
 
-    void executeBlock(List<Stmt> statements, Environment environment) {
-        Environment previous = this.environment;
-        try {
-            this.environment = environment;
+    Object takeReturnValue() {
+        Object value = returnValue;
+        returnValue = null;
+        return value;
+    }
 
-            for (Stmt statement : statements) {
-                execute(statement);
-            }
-        } finally {
-            this.environment = previous;
-        }
+    // 꼬리 호출로 끝나지 않았으면 null
+    TailCall takeTailCall() {
+        TailCall call = tailCall;
+        tailCall = null;
+        return call;
     }
 
+    // 블록의 변수는 함수 프레임에 있으므로 환경을 만들지 않는다
     @Override
-    public Void visitBlockStmt(Stmt.Block stmt) {
-        executeBlock(stmt.statements, new Environment(environment));
-        return null;
+    public Completion visitBlockStmt(Stmt.Block stmt) {
+        return executeBlock(stmt.statements);
     }
 
     @Override
-    public Void visitClassStmt(Stmt.Class stmt) {
+    public Completion visitClassStmt(Stmt.Class stmt) {
 
         Object superclass = null;
         if(stmt.superclass != null) {
@@ -185,96 +489,115 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             }
         }
 
-        environment.define(stmt.name.lexeme, null);
-
-        if(stmt.superclass != null) {
-            environment = new Environment(environment);
-            environment.define("super", superclass);
-        }
+        // 메서드가 클래스 이름이나 super를 잡으면 메서드를 만들기 전에 Cell이 있어야 한다
+        Cell cell = stmt.boxed ? stack.cell(stmt.slot) : null;
+        if(stmt.superBoxed) stack.cell(stmt.superSlot).value = superclass;
 
-        Map<String, LoxFunction> methods = new HashMap<>();
+        Map<Symbol, LoxFunction> methods = new HashMap<>();
         for(Stmt.Function method : stmt.methods) {
-            LoxFunction function = new LoxFunction(method, environment, method.name.lexeme.equals("init"));
-            methods.put(method.name.lexeme, function);
+            LoxFunction function = new LoxFunction(method, stack.capture(method.captures),
+                    method.name.symbol == Symbol.INIT);
+            methods.put(method.name.symbol, function);
         }
 
         LoxClass klass = new LoxClass(stmt.name.lexeme, (LoxClass) superclass, methods);
-
-        if(superclass != null) {
-            // environment의 포인터를 다시 원상 복귀한다
-            environment = environment.enclosing;
-        }
-
-        environment.assign(stmt.name, klass);
-        return null;
+        define(stmt.slot, cell, stmt.name, klass);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitExpressionStmt(Stmt.Expression stmt) {
+    public Completion visitExpressionStmt(Stmt.Expression stmt) {
         evaluate(stmt.expression);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitFunctionStmt(Stmt.Function stmt) {
-        LoxFunction function = new LoxFunction(stmt, environment, false);
-        environment.define(stmt.name.lexeme, function);
-        return null;
+    public Completion visitFunctionStmt(Stmt.Function stmt) {
+        // 자기 이름을 잡는 재귀 함수는 upvalues를 만들기 전에 Cell이 있어야 한다
+        Cell cell = stmt.boxed ? stack.cell(stmt.slot) : null;
+        LoxFunction function = null;
+        if (jit != null) function = jit.compile(stmt);
+        // 컴파일할 수 없는 함수는 트리 순회로 실행한다
+        if (function == null) function = new LoxFunction(stmt, stack.capture(stmt.captures), false);
+        define(stmt.slot, cell, stmt.name, function);
+        return Completion.NORMAL;
+    }
+
+    // 선언한 값을 전역(slot -1), 프레임 슬롯, 미리 만든 Cell 중 하나에 넣는다
+    private void define(int slot, Cell cell, Token name, Object value) {
+        if (cell != null) {
+            cell.value = value;
+        } else if (slot != -1) {
+            stack.values[stack.fp + slot] = value;
+        } else {
+            globals.define(name.symbol, value);
+        }
     }
 
     @Override
-    public Void visitIfStmt(Stmt.If stmt) {
-        if (isTruthy(evaluate(stmt.condition))) {
-            execute(stmt.thenBranch);
+    public Completion visitIfStmt(Stmt.If stmt) {
+        if (evaluateCondition(stmt.condition)) {
+            return execute(stmt.thenBranch);
         } else if(stmt.elseBranch != null) {
-            execute(stmt.elseBranch);
+            return execute(stmt.elseBranch);
         }
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitPrintStmt(Stmt.Print stmt) {
+    public Completion visitPrintStmt(Stmt.Print stmt) {
         Object value = evaluate(stmt.expression);
         System.out.println(stringify(value));
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitReturnStmt(Stmt.Return stmt) {
+    public Completion visitReturnStmt(Stmt.Return stmt) {
+        if(stmt.tail) {
+            tailCall = tailCall((Expr.Call) stmt.value);
+            return Completion.RETURN;
+        }
+
         Object value = null;
         if(stmt.value != null) value = evaluate(stmt.value);
 
-        throw new Return(value);
+        returnValue = value;
+        return Completion.RETURN;
     }
 
     @Override
-    public Void visitVarStmt(Stmt.Var stmt) {
+    public Completion visitVarStmt(Stmt.Var stmt) {
         Object value = null;
         if (stmt.initializer != null) {
             value = evaluate(stmt.initializer);
         }
 
-        environment.define(stmt.name.lexeme, value);
-        return null;
+        // 반복문 안의 선언은 매번 새 Cell을 만들어 클로저마다 따로 잡힌다
+        if (stmt.boxed) value = new Cell(value);
+        define(stmt.slot, null, stmt.name, value);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitWhileStmt(Stmt.While stmt) {
-        while (isTruthy(evaluate(stmt.condition))) {
-            execute(stmt.body);
+    public Completion visitWhileStmt(Stmt.While stmt) {
+        while (evaluateCondition(stmt.condition)) {
+            if (execute(stmt.body) == Completion.RETURN) return Completion.RETURN;
         }
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = evaluate(expr.value);
 
-        Integer distance = locals.get(expr);
-        if(distance != null) {
-            environment.assignAt(distance, expr.name, value);
-        } else {
+        if(expr.slot == -1) {
             globals.assign(expr.name, value);
+        } else if(expr.upvalue) {
+            stack.upvalues[expr.slot].value = value;
+        } else if(expr.boxed) {
+            ((Cell) stack.values[stack.fp + expr.slot]).value = value;
+        } else {
+            stack.values[stack.fp + expr.slot] = value;
         }
 
         return value;
@@ -307,29 +630,36 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
 
         Object value = evaluate(expr.value);
-        ((LoxInstance)object).set(expr.name, value);
+        expr.cache.set((LoxInstance) object, expr.name, value);
         return value;
     }
 
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
-        int distance = locals.get(expr);
-        LoxClass superclass = (LoxClass) environment.getAt(distance, "super");
+        return superMethod(expr).bind(self(expr));
+    }
 
-        LoxInstance object = (LoxInstance) environment.getAt(distance-1, "this");
+    // super로 찾은 메서드에 넘길 this
+    private LoxInstance self(Expr.Super expr) {
+        return (LoxInstance) evaluate(expr.self);
+    }
 
-        LoxFunction method = superclass.findMethod(expr.method.lexeme);
+    private LoxFunction superMethod(Expr.Super expr) {
+        LoxClass superclass = (LoxClass) evaluate(expr.superclass);
+
+        LoxFunction method = superclass.findMethod(expr.method.symbol);
 
         if(method == null) {
             throw new RuntimeError(expr.method, "Undefined property '" + expr.method.lexeme + "'.");
         }
 
-        return method.bind(object);
+        return method;
     }
 
     @Override
     public Object visitThisExpr(Expr.This expr) {
-        return lookUpVariable(expr.keyword, expr);
+        // 메서드 안에서는 프레임의 0번 슬롯, 안쪽 함수에서는 upvalue
+        return local(expr.slot, expr.upvalue, expr.boxed);
     }
 
     @Override
@@ -351,16 +681,16 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitVariableExpr(Expr.Variable expr) {
-        return lookUpVariable(expr.name, expr);
+        if(expr.slot == -1) return globals.get(expr.name);
+        return local(expr.slot, expr.upvalue, expr.boxed);
     }
 
-    private Object lookUpVariable(Token name, Expr expr) {
-        Integer distance = locals.get(expr);
-        if(distance != null) {
-            return environment.getAt(distance, name.lexeme);
-        } else {
-            return globals.get(name);
-        }
+    private Object local(int slot, boolean upvalue, boolean boxed) {
+        if(upvalue) return stack.upvalues[slot].value;
+
+        Object value = stack.values[stack.fp + slot];
+        if(boxed) return ((Cell) value).value;
+        return value;
     }
 
     private void checkNumberOperand(Token operator, Object operand) {
@@ -368,32 +698,29 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         throw new RuntimeError(operator, "Operand must be a number");
     }
 
-    private void checkNumberOperand(Token operator, Object left, Object right) {
-        if (left instanceof Double && right instanceof Double) return;
-
-        throw new RuntimeError(operator, "Operand must be a number");
-    }
-
-    private void checkRightOperand(Token operator, Object right) {
-        if ((double) right != 0) return;
+    private void checkRightOperand(Token operator, double right) {
+        if (right != 0) return;
         throw new RuntimeError(operator, "0으로 나눌 수 없습니다.");
     }
 
     // false, null은 flasey, 나머지는 모두 truthy
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
         if (object == null) return false;
         if (object instanceof Boolean) return (boolean) object;
         return true;
     }
 
-    private boolean  isEqual(Object a, Object b) {
+    static boolean isEqual(Object a, Object b) {
         if (a == null && b == null) return true;
         if (a == null) return false;
 
+        // 이어 붙인 문자열은 펼쳐서 String과 같은 내용이면 같다
+        if (a instanceof Rope) a = a.toString();
+        if (b instanceof Rope) b = b.toString();
         return a.equals(b);
     }
 
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null) return "nil";
 
         if (object instanceof Double) {
@@ -407,6 +734,12 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return object.toString();
     }
 
+    // 문자열 결합에 쓸 표현, 이미 문자열이면 Rope를 펼치지 않고 그대로 넘긴다
+    static CharSequence text(Object object) {
+        if (object instanceof CharSequence) return (CharSequence) object;
+        return stringify(object);
+    }
+
     /*
     void interpret(Expr expression) {
         try {
@@ -0,0 +1,129 @@
+package interpreter.lox;
+
+// JvmCompiler가 생성한 클래스가 호출하는 동적 타입 처리 함수들
+// 의미는 Interpreter의 visit 메서드와 같다
+final class JitRuntime {
+
+    private JitRuntime() {
+    }
+
+    static boolean isTruthy(Object value) {
+        return Interpreter.isTruthy(value);
+    }
+
+    static Object not(Object value) {
+        return !Interpreter.isTruthy(value);
+    }
+
+    static Object negate(Object value, Token operator) {
+        if (!(value instanceof Double)) {
+            throw new RuntimeError(operator, "Operand must be a number");
+        }
+        return -(double) value;
+    }
+
+    static Object add(Object left, Object right, Token operator) {
+        if (left instanceof Double && right instanceof Double) {
+            return (double) left + (double) right;
+        }
+
+        if (left instanceof CharSequence && right instanceof CharSequence) {
+            return Rope.concat((CharSequence) left, (CharSequence) right);
+        }
+
+        if (left instanceof Double || right instanceof Double) {
+            return Rope.concat(Interpreter.text(left), Interpreter.text(right));
+        }
+
+        throw new RuntimeError(operator, "Operand must be a number");
+    }
+
+    static Object subtract(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left - (double) right;
+    }
+
+    static Object multiply(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left * (double) right;
+    }
+
+    static Object divide(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        if ((double) right == 0) throw new RuntimeError(operator, "0으로 나눌 수 없습니다.");
+        return (double) left / (double) right;
+    }
+
+    static Object greater(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left > (double) right;
+    }
+
+    static Object greaterEqual(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left >= (double) right;
+    }
+
+    static Object less(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left < (double) right;
+    }
+
+    static Object lessEqual(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left <= (double) right;
+    }
+
+    static Object equal(Object left, Object right) {
+        return Interpreter.isEqual(left, right);
+    }
+
+    static Object notEqual(Object left, Object right) {
+        return !Interpreter.isEqual(left, right);
+    }
+
+    static Object call(Object callee, Object[] arguments, Token paren, Interpreter interpreter) {
+        if (!(callee instanceof LoxCallable)) {
+            throw new RuntimeError(paren, "Can only call functions and classes.");
+        }
+
+        LoxCallable function = (LoxCallable) callee;
+        if (arguments.length != function.arity()) {
+            throw new RuntimeError(paren, "Expected" +
+                    function.arity() + "arguments but got " + arguments.length + ".");
+        }
+
+        return function.call(interpreter, arguments);
+    }
+
+    static Object getProperty(Object object, PropertyCache cache, Token name) {
+        if (object instanceof LoxInstance) {
+            return cache.get((LoxInstance) object, name);
+        }
+
+        throw new RuntimeError(name, "Only instances have properties");
+    }
+
+    // 필드 대입은 값을 평가하기 전에 대상부터 검사한다
+    static Object checkInstance(Object object, Token name) {
+        if (!(object instanceof LoxInstance)) {
+            throw new RuntimeError(name, "Only instances have fields.");
+        }
+        return object;
+    }
+
+    static Object setProperty(Object object, Object value, PropertyCache cache, Token name) {
+        cache.set((LoxInstance) object, name, value);
+        return value;
+    }
+
+    static void print(Object value) {
+        System.out.println(Interpreter.stringify(value));
+    }
+
+    private static void checkNumberOperands(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) return;
+
+        throw new RuntimeError(operator, "Operand must be a number");
+    }
+}
@@ -0,0 +1,605 @@
+package interpreter.lox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Stmt.Function 하나를 JVM 클래스 하나로 바꿔 hidden class로 정의한다
+// 생성된 코드는 HotSpot이 그대로 JIT 컴파일하며, 동적 타입 처리는 JitRuntime을 호출한다
+// 지원하지 않는 구문(중첩 함수/클래스, 바깥 함수의 지역 변수, this/super)이 있으면 null을 돌려
+// Interpreter가 평소처럼 LoxFunction으로 실행하게 한다
+class JvmCompiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+
+    // 생성된 클래스가 구현하는 진입점
+    interface Code {
+        Object invoke(Interpreter interpreter, Object[] constants, Environment globals, Object[] args);
+    }
+
+    private static class Unsupported extends RuntimeException {
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    // 한 번 컴파일한 함수는 클로저를 새로 만들 때마다 재사용한다
+    private static class Compiled {
+        final Code code;
+        final Object[] constants;
+
+        Compiled(Code code, Object[] constants) {
+            this.code = code;
+            this.constants = constants;
+        }
+    }
+
+    private static final Compiled UNSUPPORTED = new Compiled(null, null);
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String OBJ = "Ljava/lang/Object;";
+    private static final String TOKEN = "Linterpreter/lox/Token;";
+    private static final String CACHE = "Linterpreter/lox/PropertyCache;";
+    private static final String RUNTIME = "interpreter/lox/JitRuntime";
+    private static final String ENVIRONMENT = "interpreter/lox/Environment";
+    private static final String INTERPRETER = "Linterpreter/lox/Interpreter;";
+    private static final String INVOKE_DESC = "(" + INTERPRETER
+            + "[Ljava/lang/Object;Linterpreter/lox/Environment;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    // 0: this, 1: Interpreter, 2: 상수 배열, 3: 전역 환경, 4: 인수 배열, 5부터 Lox 지역 변수
+    private static final int INTERPRETER_ARG = 1;
+    private static final int CONSTANTS = 2;
+    private static final int GLOBALS = 3;
+    private static final int ARGS = 4;
+    private static final int FIRST_LOCAL = 5;
+    private static final int MAX_JVM_LOCALS = 255;
+
+    private final Environment globals;
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final Map<Stmt.Function, Compiled> cache = new IdentityHashMap<>();
+
+    // 함수 하나를 컴파일하는 동안의 상태
+    private ConstantPool pool;
+    private byte[] code;
+    private int length;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+    private List<Object> constants;
+
+    JvmCompiler(Environment globals) {
+        this.globals = globals;
+    }
+
+    LoxFunction compile(Stmt.Function function) {
+        Compiled compiled = cache.get(function);
+        if (compiled == null) {
+            compiled = define(function);
+            cache.put(function, compiled);
+        }
+
+        if (compiled == UNSUPPORTED) return null;
+        return new CompiledFunction(function, compiled.code, compiled.constants, globals);
+    }
+
+    private Compiled define(Stmt.Function function) {
+        byte[] bytes;
+        try {
+            bytes = generate(function);
+        } catch (Unsupported unsupported) {
+            return UNSUPPORTED;
+        }
+
+        try {
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(bytes, true);
+            Code instance = (Code) hidden.findConstructor(hidden.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+            return new Compiled(instance, constants.toArray());
+        } catch (Throwable error) {
+            // 검증 실패 등 정의할 수 없으면 트리 순회로 실행한다
+            return UNSUPPORTED;
+        }
+    }
+
+    private byte[] generate(Stmt.Function function) {
+        pool = new ConstantPool();
+        code = new byte[256];
+        length = 0;
+        stack = 0;
+        maxStack = 0;
+        // Lox 값 스택 프레임의 슬롯을 그대로 JVM 지역 변수 번호로 쓴다(인자가 슬롯 0부터)
+        // 바깥 변수를 잡는 함수(upvalue)와 안에 함수 선언이 있는 함수(Cell)는 지원하지 않는다
+        if (function.captures.length > 0 || FIRST_LOCAL + function.frameSize > MAX_JVM_LOCALS) {
+            throw new Unsupported();
+        }
+        maxLocals = FIRST_LOCAL + function.frameSize;
+        constants = new ArrayList<>();
+
+        for (int i = 0; i < function.params.size(); i++) {
+            aload(ARGS);
+            pushInt(i);
+            op(0x32, -1); // aaload
+            astore(FIRST_LOCAL + i);
+        }
+        for (Stmt statement : function.body) {
+            statement.accept(this);
+        }
+
+        op(0x01, 1); // aconst_null
+        op(0xb0, -1); // areturn
+
+        // 분기 오프셋이 signed 16비트에 들어가야 한다
+        if (length > Short.MAX_VALUE) throw new Unsupported();
+
+        return classFile(function.name.lexeme);
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        for (Stmt statement : stmt.statements) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        stmt.expression.accept(this);
+        op(0x57, -1); // pop
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        condition(stmt.condition);
+        int elseJump = jump(0x99); // ifeq
+        stmt.thenBranch.accept(this);
+
+        if (stmt.elseBranch == null) {
+            patch(elseJump);
+            return null;
+        }
+
+        int endJump = jump(0xa7); // goto
+        patch(elseJump);
+        stmt.elseBranch.accept(this);
+        patch(endJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        stmt.expression.accept(this);
+        invokestatic(RUNTIME, "print", "(" + OBJ + ")V", -1);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.value != null) {
+            stmt.value.accept(this);
+        } else {
+            op(0x01, 1); // aconst_null
+        }
+        op(0xb0, -1); // areturn
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.initializer != null) {
+            stmt.initializer.accept(this);
+        } else {
+            op(0x01, 1); // aconst_null
+        }
+        astore(local(stmt.slot));
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int start = length;
+        condition(stmt.condition);
+        int exitJump = jump(0x99); // ifeq
+        stmt.body.accept(this);
+        int back = jump(0xa7); // goto
+        patchTo(back, start);
+        patch(exitJump);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        if (expr.slot == -1) {
+            aload(GLOBALS);
+            loadToken(expr.name);
+            expr.value.accept(this);
+            op(0x5b, 1); // dup_x2
+            invokevirtual(ENVIRONMENT, "assign", "(" + TOKEN + OBJ + ")V", -3);
+            return null;
+        }
+
+        if (expr.upvalue || expr.boxed) throw new Unsupported();
+        expr.value.accept(this);
+        op(0x59, 1); // dup
+        astore(local(expr.slot));
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        expr.left.accept(this);
+        expr.right.accept(this);
+
+        String name;
+        switch (expr.operator.type) {
+            case GREATER: name = "greater"; break;
+            case GREATER_EQUAL: name = "greaterEqual"; break;
+            case LESS: name = "less"; break;
+            case LESS_EQUAL: name = "lessEqual"; break;
+            case MINUS: name = "subtract"; break;
+            case PLUS: name = "add"; break;
+            case SLASH: name = "divide"; break;
+            case STAR: name = "multiply"; break;
+            case BANG_EQUAL:
+                invokestatic(RUNTIME, "notEqual", "(" + OBJ + OBJ + ")" + OBJ, -1);
+                return null;
+            case EQUAL:
+                invokestatic(RUNTIME, "equal", "(" + OBJ + OBJ + ")" + OBJ, -1);
+                return null;
+            default:
+                throw new Unsupported();
+        }
+
+        loadToken(expr.operator);
+        invokestatic(RUNTIME, name, "(" + OBJ + OBJ + TOKEN + ")" + OBJ, -2);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        expr.callee.accept(this);
+
+        pushInt(expr.arguments.size());
+        op(0xbd, 0); // anewarray
+        u2(pool.classRef(OBJECT));
+        for (int i = 0; i < expr.arguments.size(); i++) {
+            op(0x59, 1); // dup
+            pushInt(i);
+            expr.arguments.get(i).accept(this);
+            op(0x53, -3); // aastore
+        }
+
+        loadToken(expr.paren);
+        // 트리 순회로 실행되는 LoxFunction을 부를 수도 있으므로 Interpreter를 넘긴다
+        aload(INTERPRETER_ARG);
+        invokestatic(RUNTIME, "call", "(" + OBJ + "[" + OBJ + TOKEN + INTERPRETER + ")" + OBJ, -3);
+        return null;
+    }
+
+    // 인라인된 본문 대신 원래 호출을 컴파일한다
+    @Override
+    public Void visitInlineExpr(Expr.Inline expr) {
+        return expr.call.accept(this);
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        expr.object.accept(this);
+        loadCache(expr.cache);
+        loadToken(expr.name);
+        invokestatic(RUNTIME, "getProperty", "(" + OBJ + CACHE + TOKEN + ")" + OBJ, -2);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        expr.expression.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        loadConstant(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        expr.left.accept(this);
+        op(0x59, 1); // dup
+        invokestatic(RUNTIME, "isTruthy", "(" + OBJ + ")Z", 0);
+        // or는 참이면, and는 거짓이면 왼쪽 값을 결과로 남긴다
+        int end = jump(expr.operator.type == TokenType.OR ? 0x9a : 0x99); // ifne : ifeq
+        op(0x57, -1); // pop
+        expr.right.accept(this);
+        patch(end);
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        expr.object.accept(this);
+        loadToken(expr.name);
+        invokestatic(RUNTIME, "checkInstance", "(" + OBJ + TOKEN + ")" + OBJ, -1);
+        expr.value.accept(this);
+        loadCache(expr.cache);
+        loadToken(expr.name);
+        invokestatic(RUNTIME, "setProperty", "(" + OBJ + OBJ + CACHE + TOKEN + ")" + OBJ, -3);
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Void visitThisExpr(Expr.This expr) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        expr.right.accept(this);
+        if (expr.operator.type == TokenType.MINUS) {
+            loadToken(expr.operator);
+            invokestatic(RUNTIME, "negate", "(" + OBJ + TOKEN + ")" + OBJ, -1);
+        } else {
+            invokestatic(RUNTIME, "not", "(" + OBJ + ")" + OBJ, 0);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        if (expr.slot == -1) {
+            aload(GLOBALS);
+            loadToken(expr.name);
+            invokevirtual(ENVIRONMENT, "get", "(" + TOKEN + ")" + OBJ, -1);
+            return null;
+        }
+
+        if (expr.upvalue || expr.boxed) throw new Unsupported();
+        aload(local(expr.slot));
+        return null;
+    }
+
+    private void condition(Expr condition) {
+        condition.accept(this);
+        invokestatic(RUNTIME, "isTruthy", "(" + OBJ + ")Z", 0);
+    }
+
+    // 블록이 끝나면 Resolver가 그 슬롯을 다음 블록에 다시 주므로 JVM 지역 변수도 같이 재사용된다
+    private int local(int slot) {
+        return FIRST_LOCAL + slot;
+    }
+
+    private void loadToken(Token token) {
+        loadConstant(token);
+        op(0xc0, 0); // checkcast
+        u2(pool.classRef("interpreter/lox/Token"));
+    }
+
+    private void loadCache(PropertyCache cache) {
+        loadConstant(cache);
+        op(0xc0, 0); // checkcast
+        u2(pool.classRef("interpreter/lox/PropertyCache"));
+    }
+
+    private void loadConstant(Object value) {
+        if (value == null) {
+            op(0x01, 1); // aconst_null
+            return;
+        }
+
+        if (constants.size() == Short.MAX_VALUE) throw new Unsupported();
+        constants.add(value);
+        aload(CONSTANTS);
+        pushInt(constants.size() - 1);
+        op(0x32, -1); // aaload
+    }
+
+    private void pushInt(int value) {
+        if (value <= 5) {
+            op(0x03 + value, 1); // iconst_<n>
+        } else if (value <= Byte.MAX_VALUE) {
+            op(0x10, 1); // bipush
+            u1(value);
+        } else {
+            op(0x11, 1); // sipush
+            u2(value);
+        }
+    }
+
+    private void aload(int index) {
+        if (index <= 3) {
+            op(0x2a + index, 1); // aload_<n>
+        } else {
+            op(0x19, 1); // aload
+            u1(index);
+        }
+    }
+
+    private void astore(int index) {
+        op(0x3a, -1); // astore
+        u1(index);
+    }
+
+    private void invokestatic(String owner, String name, String descriptor, int effect) {
+        op(0xb8, effect);
+        u2(pool.methodRef(owner, name, descriptor));
+    }
+
+    private void invokevirtual(String owner, String name, String descriptor, int effect) {
+        op(0xb6, effect);
+        u2(pool.methodRef(owner, name, descriptor));
+    }
+
+    private int jump(int opcode) {
+        int at = length;
+        // 조건 분기는 int 하나를 꺼낸다
+        op(opcode, opcode == 0xa7 ? 0 : -1);
+        u2(0);
+        return at;
+    }
+
+    private void patch(int at) {
+        patchTo(at, length);
+    }
+
+    private void patchTo(int at, int target) {
+        int offset = target - at;
+        code[at + 1] = (byte) (offset >> 8);
+        code[at + 2] = (byte) offset;
+    }
+
+    // 스택 깊이를 따라가며 max_stack을 계산한다
+    private void op(int opcode, int effect) {
+        u1(opcode);
+        stack += effect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u1(int value) {
+        if (length == code.length) code = Arrays.copyOf(code, length * 2);
+        code[length++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+
+    // major 49 클래스 파일은 StackMapTable 없이 타입 추론 검증기로 검증된다
+    private byte[] classFile(String functionName) {
+        String className = "interpreter/lox/LoxJit$" + functionName;
+        int thisClass = pool.classRef(className);
+        int superClass = pool.classRef(OBJECT);
+        int codeInterface = pool.classRef("interpreter/lox/JvmCompiler$Code");
+        int objectInit = pool.methodRef(OBJECT, "<init>", "()V");
+        int initName = pool.utf8("<init>");
+        int initDesc = pool.utf8("()V");
+        int invokeName = pool.utf8("invoke");
+        int invokeDesc = pool.utf8(INVOKE_DESC);
+        int codeName = pool.utf8("Code");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            pool.writeTo(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(codeInterface);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            byte[] init = {0x2a, (byte) 0xb7, (byte) (objectInit >> 8), (byte) objectInit, (byte) 0xb1};
+            writeMethod(out, initName, initDesc, codeName, 1, 1, init, init.length);
+            writeMethod(out, invokeName, invokeDesc, codeName, maxStack, maxLocals, code, length);
+
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new Unsupported();
+        }
+    }
+
+    private void writeMethod(DataOutputStream out, int name, int descriptor, int codeName,
+                             int maxStack, int maxLocals, byte[] code, int codeLength) throws IOException {
+        out.writeShort(0x0001); // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + codeLength);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(codeLength);
+        out.write(code, 0, codeLength);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            Integer index = entries.get("U" + value);
+            if (index != null) return index;
+            try {
+                out.writeByte(1);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new Unsupported();
+            }
+            return add("U" + value);
+        }
+
+        int classRef(String internalName) {
+            Integer index = entries.get("C" + internalName);
+            if (index != null) return index;
+            int name = utf8(internalName);
+            write(7, name);
+            return add("C" + internalName);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            write(12, nameIndex, descriptorIndex);
+            int nameAndType = add("N" + name + descriptor);
+            write(10, ownerIndex, nameAndType);
+            return add(key);
+        }
+
+        private void write(int tag, int... values) {
+            try {
+                out.writeByte(tag);
+                for (int value : values) {
+                    out.writeShort(value);
+                }
+            } catch (IOException e) {
+                throw new Unsupported();
+            }
+        }
+
+        private int add(String key) {
+            entries.put(key, count);
+            return count++;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+    }
+}
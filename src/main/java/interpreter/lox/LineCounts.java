@@ -0,0 +1,232 @@
+package interpreter.lox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// 소스 줄마다 문장을 실행한 횟수와 걸린 시간을 센다(--hot-lines)
+// 켜면 트리 순회는 CountingInterpreter가, --nodes는 StmtNode.Counted로 감싼 노드가 문장마다 enter, exit를 부른다
+// 시간은 self 시간이라 안쪽 문장(호출한 함수의 문장 포함)에 걸린 시간은 빼고 센다
+final class LineCounts implements Stmt.Visitor<Void>, Expr.Visitor<Integer> {
+    private static final int REPORT_LINES = 20;
+
+    // 줄 번호로 찾는다, 0은 토큰이 없어 줄을 모르는 문장
+    private long[] counts = new long[64];
+    private long[] nanos = new long[64];
+    // 지금 실행 중인 문장 안에서 끝난 문장들의 시간 합
+    private long inner = 0;
+
+    // 토큰이 하나도 없는 문장(print "a";)은 앞 문장의 줄로 센다
+    private int previous = 0;
+
+    // 실행하기 전에 프로그램 전체(함수 본문 포함)의 문장마다 Stmt.line을 한 번 채워 둔다
+    // 실행 중에는 그 값으로 배열을 바로 찾는다, 블록은 안쪽 문장을 모아 둘 뿐이라 -1로 두고 세지 않는다
+    void mark(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    // 문장을 시작할 때 부르고 돌려받은 값을 exit에 넘긴다
+    long enter() {
+        long outer = inner;
+        inner = 0;
+        return outer;
+    }
+
+    void exit(int line, long outer, long elapsed) {
+        counts[line]++;
+        nanos[line] += elapsed - inner;
+        inner = outer + elapsed;
+    }
+
+    // self 시간이 긴 줄부터 출력한다, source가 있으면 그 줄의 소스도 함께 보여 준다
+    // 소스는 실행할 때와 같은 디코더로 읽어, 기본 문자셋에 맞지 않는 바이트가 있어도 나머지 줄은 보여 준다
+    void report(PrintStream out, Path source) {
+        List<String> text = null;
+        if (source != null) {
+            try (BufferedReader reader = new BufferedReader(
+                    Channels.newReader(FileChannel.open(source), Lox.decoder(), -1))) {
+                text = reader.lines().collect(Collectors.toList());
+            } catch (IOException | UncheckedIOException e) {
+                // 줄 번호만 출력한다
+            }
+        }
+
+        List<Integer> hot = new ArrayList<>();
+        long statements = 0;
+        long total = 0;
+        for (int line = 0; line < counts.length; line++) {
+            if (counts[line] == 0) continue;
+            hot.add(line);
+            statements += counts[line];
+            total += nanos[line];
+        }
+        hot.sort((a, b) -> Long.compare(nanos[b], nanos[a]));
+
+        out.println(String.format("hot lines: %d statements in %.1f ms", statements, total / 1e6));
+        out.println(String.format("%6s %12s %10s %7s  %s", "line", "count", "self ms", "self", "source"));
+        for (int i = 0; i < hot.size() && i < REPORT_LINES; i++) {
+            int line = hot.get(i);
+            String code = text != null && line > 0 && line <= text.size() ? text.get(line - 1).trim() : "";
+            out.println(String.format("%6s %12d %10.1f %6.1f%%  %s", line == 0 ? "?" : String.valueOf(line),
+                    counts[line], nanos[line] / 1e6, total == 0 ? 0 : 100.0 * nanos[line] / total, code));
+        }
+    }
+
+    private void mark(Stmt stmt, int line) {
+        if (line == 0) line = previous;
+        previous = line;
+        stmt.line = line;
+        if (line >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(line + 1, counts.length * 2));
+            nanos = Arrays.copyOf(nanos, counts.length);
+        }
+    }
+
+    // 두 줄 중 앞선 줄, 0은 없는 것으로 본다
+    private static int first(int a, int b) {
+        if (a == 0) return b;
+        if (b == 0) return a;
+        return Math.min(a, b);
+    }
+
+    private int line(Expr expr) {
+        return expr == null ? 0 : expr.accept(this);
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        mark(stmt.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        mark(stmt, stmt.name.line);
+        for (Stmt.Function method : stmt.methods) {
+            mark(method.body);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        mark(stmt, line(stmt.expression));
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        mark(stmt, stmt.name.line);
+        mark(stmt.body);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        mark(stmt, line(stmt.condition));
+        stmt.thenBranch.accept(this);
+        if (stmt.elseBranch != null) stmt.elseBranch.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        mark(stmt, line(stmt.expression));
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        mark(stmt, stmt.keyword.line);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        mark(stmt, stmt.name.line);
+        return null;
+    }
+
+    // 반복문 자체는 조건식의 줄로 센다, 본문은 본문의 줄로 따로 센다
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        mark(stmt, line(stmt.condition));
+        stmt.body.accept(this);
+        return null;
+    }
+
+    @Override
+    public Integer visitAssignExpr(Expr.Assign expr) {
+        return first(expr.name.line, line(expr.value));
+    }
+
+    @Override
+    public Integer visitBinaryExpr(Expr.Binary expr) {
+        return first(line(expr.left), expr.operator.line);
+    }
+
+    @Override
+    public Integer visitCallExpr(Expr.Call expr) {
+        return first(line(expr.callee), expr.paren.line);
+    }
+
+    @Override
+    public Integer visitGetExpr(Expr.Get expr) {
+        return first(line(expr.object), expr.name.line);
+    }
+
+    @Override
+    public Integer visitGroupingExpr(Expr.Grouping expr) {
+        return line(expr.expression);
+    }
+
+    @Override
+    public Integer visitInlineExpr(Expr.Inline expr) {
+        return line(expr.call);
+    }
+
+    @Override
+    public Integer visitLiteralExpr(Expr.Literal expr) {
+        return 0;
+    }
+
+    @Override
+    public Integer visitLogicalExpr(Expr.Logical expr) {
+        return first(line(expr.left), expr.operator.line);
+    }
+
+    @Override
+    public Integer visitSetExpr(Expr.Set expr) {
+        return first(line(expr.object), expr.name.line);
+    }
+
+    @Override
+    public Integer visitSuperExpr(Expr.Super expr) {
+        return expr.keyword.line;
+    }
+
+    @Override
+    public Integer visitThisExpr(Expr.This expr) {
+        return expr.keyword.line;
+    }
+
+    @Override
+    public Integer visitUnaryExpr(Expr.Unary expr) {
+        return expr.operator.line;
+    }
+
+    @Override
+    public Integer visitVariableExpr(Expr.Variable expr) {
+        return expr.name.line;
+    }
+}
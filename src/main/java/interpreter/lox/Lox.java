@@ -3,37 +3,149 @@ package interpreter.lox;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.List;
 
 public class Lox {
 
-    private static final Interpreter interpreter = new Interpreter();
+    private static Interpreter interpreter = new Interpreter();
+    // --vm 옵션을 주면 트리 순회 대신 바이트코드 VM으로 실행한다
+    private static VM vm = null;
+    // --nodes 옵션을 주면 미리 연결한 실행 노드 트리로 실행한다
+    private static NodeCompiler nodes = null;
+    // Resolver 뒤에 AST 최적화 패스를 돌린다(--no-opt, --no-opt=<pass>, --opt-report)
+    private static final Optimizer optimizer = new Optimizer();
+    // --stream 옵션을 주면 최상위 선언을 다 읽을 때마다 바로 실행한다
+    private static boolean stream = false;
+    // --cache[=<dir>] 옵션을 주면 resolve한 AST를 저장해 두고 소스가 같으면 다시 읽지 않는다, 기본 디렉터리는 사용자마다 따로 둔다
+    private static ScriptCache cache = null;
+    // --hot-lines 옵션을 주면 줄마다 문장 실행 횟수와 시간을 세어 끝날 때 출력한다
+    private static LineCounts lineCounts = null;
     static boolean hadError = false;
     static boolean hadRuntimeError = false;
 
     public static void main(String[] args) throws IOException {
-        if(args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        int options = 0;
+        for (; options < args.length && args[options].startsWith("--"); options++) {
+            switch (args[options]) {
+                case "--vm": vm = new VM(); break;
+                case "--nodes": nodes = new NodeCompiler(); break;
+                case "--jit": interpreter.enableJit(); break;
+                case "--no-opt": optimizer.disableAll(); break;
+                case "--opt-report": optimizer.enableReport(); break;
+                case "--stream": stream = true; break;
+                case "--profile": Profiler.start(Paths.get("profile.collapsed")); break;
+                case "--hot-lines": lineCounts = new LineCounts(); break;
+                case "--cache":
+                    cache = new ScriptCache(ScriptCache.defaultDirectory());
+                    break;
+                default:
+                    if (args[options].startsWith("--profile=")) {
+                        Profiler.start(Paths.get(args[options].substring("--profile=".length())));
+                        break;
+                    }
+                    if (args[options].startsWith("--cache=")) {
+                        cache = new ScriptCache(Paths.get(args[options].substring("--cache=".length())));
+                        break;
+                    }
+                    if (!args[options].startsWith("--no-opt=")
+                            || !optimizer.disable(args[options].substring("--no-opt=".length()))) {
+                        usage();
+                    }
+            }
+        }
+
+        if (lineCounts != null) {
+            // 바이트코드와 JVM 클래스로 실행하는 코드는 Stmt를 거치지 않아 셀 수 없다
+            if (vm != null || interpreter.jitEnabled()) usage();
+            if (nodes != null) {
+                nodes.countLines(lineCounts);
+            } else {
+                interpreter = new CountingInterpreter(lineCounts);
+            }
+        }
+
+        if(args.length - options > 1) {
+            usage();
+        } else if (args.length - options == 1) {
+            runFile(args[options]);
         } else {
             runPrompt();
         }
     }
 
+    private static void usage() {
+        System.out.println("Usage: jlox [--vm | --nodes | --jit] [--no-opt[=fold|branches|unreachable|inline]]"
+                + " [--opt-report] [--stream | --cache[=dir]] [--profile[=file]] [--hot-lines] [script]");
+        System.exit(64);
+    }
+
     // 두 함수 모두 run()을 감싸는 wrapper
     private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+        // 스트리밍은 선언마다 실행하므로 프로그램 전체를 저장하는 캐시와 함께 쓰지 않는다
+        if (cache != null && !stream) {
+            runCached(Paths.get(path));
+        } else {
+            // 파일 전체를 String으로 읽지 않고 Scanner가 채널에서 필요한 만큼 읽는다
+            try (Reader reader = Channels.newReader(FileChannel.open(Paths.get(path)), decoder(), -1)) {
+                Parser parser = new Parser(new Scanner(new SourceBuffer(reader)).scanTokens());
+                if (stream) {
+                    runStream(parser);
+                } else {
+                    run(parse(parser));
+                }
+            }
+        }
+        stopProfiler();
+        if (lineCounts != null) lineCounts.report(System.err, Paths.get(path));
         // 종료 코드로 에러 식별
         if (hadError) System.exit(65);
         if (hadRuntimeError) System.exit(70);
     }
 
+    // 소스 파일과 캐시 파일 모두 mmap으로 읽는다
+    // 캐시가 맞으면 Scanner, Parser, Resolver 없이 최적화부터 시작한다
+    private static void runCached(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            MappedByteBuffer source = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            String key = ScriptCache.key(source);
+            LoxEvents.PhaseEvent phase = LoxEvents.beginPhase("cache");
+            ScriptCache.Entry entry = cache.load(key);
+            LoxEvents.endPhase(phase);
+            if (entry != null) {
+                execute(entry.statements, entry.frameSize);
+                return;
+            }
+
+            Parser parser = new Parser(new Scanner(decoder().decode(source).toString()).scanTokens());
+            List<Stmt> statements = parse(parser);
+            if (hadError) return;
+
+            Resolver resolver = resolve(statements);
+            if (hadError) return;
+
+            // 에러 없이 resolve한 프로그램만 저장한다
+            cache.store(key, statements, resolver.frameSize());
+            execute(statements, resolver.frameSize());
+        }
+    }
+
+    // 잘못된 바이트는 바꿔 읽는다, --hot-lines 보고서도 같은 디코더로 소스를 읽는다
+    static CharsetDecoder decoder() {
+        return Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
     private static void runPrompt() throws IOException {
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
@@ -46,24 +158,84 @@ public class Lox {
             // 대화형에서는 한번의 오류로 세션을 중단시키지 않는다
             hadError = false;
         }
+        stopProfiler();
+        if (lineCounts != null) lineCounts.report(System.err, null);
+    }
+
+    // --profile 결과는 실행이 끝난 뒤 표준 에러로 출력해 프로그램 출력과 섞이지 않게 한다
+    private static void stopProfiler() {
+        if (Profiler.current != null) Profiler.current.stop(System.err);
     }
 
     private static void run(String source) {
         Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
+        TokenBuffer tokens = scanner.scanTokens();
         Parser parser = new Parser(tokens);
         // Expr expression = parser.parse();
+        run(parse(parser));
+    }
+
+    // JFR로 기록 중이면 단계마다 lox.Phase 이벤트를 남긴다
+    private static List<Stmt> parse(Parser parser) {
+        LoxEvents.PhaseEvent phase = LoxEvents.beginPhase("parse");
         List<Stmt> statements = parser.parse();
+        LoxEvents.endPhase(phase);
+        return statements;
+    }
 
+    private static Resolver resolve(List<Stmt> statements) {
+        LoxEvents.PhaseEvent phase = LoxEvents.beginPhase("resolve");
+        Resolver resolver = new Resolver();
+        resolver.resolve(statements);
+        LoxEvents.endPhase(phase);
+        return resolver;
+    }
+
+    // 선언 하나를 읽을 때마다 대화형처럼 따로 resolve하고 실행한다
+    // 뒤에 나올 문법 에러와 상관없이 앞의 선언은 실행되고, 에러가 난 뒤로는 에러를 모두 보고하도록 읽고 resolve만 한다
+    // 전체를 보고 하는 인라인은 한 선언 안에서만 이루어진다
+    private static void runStream(Parser parser) {
+        while (parser.hasNext()) {
+            LoxEvents.PhaseEvent phase = LoxEvents.beginPhase("parse");
+            Stmt statement = parser.next();
+            LoxEvents.endPhase(phase);
+            // 문법 에러로 읽지 못한 선언은 null
+            if (statement == null) continue;
+
+            List<Stmt> statements = Collections.singletonList(statement);
+            Resolver resolver = resolve(statements);
+            if (hadError || hadRuntimeError) continue;
+            execute(statements, resolver.frameSize());
+        }
+    }
+
+    private static void run(List<Stmt> statements) {
         // error 발생시 중단
         if (hadError) return;
 
-        Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
+        Resolver resolver = resolve(statements);
 
         if (hadError) return;
 
-        interpreter.interpret(statements);
+        execute(statements, resolver.frameSize());
+    }
+
+    // resolve가 끝난 프로그램을 최적화하고 고른 엔진으로 실행한다
+    private static void execute(List<Stmt> statements, int frameSize) {
+        LoxEvents.PhaseEvent phase = LoxEvents.beginPhase("optimize");
+        statements = optimizer.optimize(statements);
+        LoxEvents.endPhase(phase);
+        if (lineCounts != null) lineCounts.mark(statements);
+
+        phase = LoxEvents.beginPhase("execute");
+        if (vm != null) {
+            vm.interpret(statements);
+        } else if (nodes != null) {
+            nodes.interpret(statements, frameSize);
+        } else {
+            interpreter.interpret(statements, frameSize);
+        }
+        LoxEvents.endPhase(phase);
 //        System.out.println(new AstPrinter().print(expression));
     }
 
@@ -76,6 +248,7 @@ public class Lox {
     static void runtimeError(RuntimeError error) {
         System.err.println(error.getMessage() + "\n[line" + error.token.line + "]");
         hadRuntimeError = true;
+        LoxEvents.runtimeError(error);
     }
 
     private static void report(int line, String where, String message) {
@@ -1,8 +1,30 @@
 package interpreter.lox;
 
-import java.util.List;
-
+// 인자 4개까지는 개수별 진입점으로 부르고, 그보다 많으면 배열을 받는 call을 쓴다
+// 호출하는 쪽은 인자 목록(List, 배열)을 따로 만들지 않는다
 public interface LoxCallable {
+    Object[] NO_ARGUMENTS = new Object[0];
+
     int arity();
-    Object call(Interpreter interpreter, List<Object> arguments);
+    Object call(Interpreter interpreter, Object[] arguments);
+
+    default Object call0(Interpreter interpreter) {
+        return call(interpreter, NO_ARGUMENTS);
+    }
+
+    default Object call1(Interpreter interpreter, Object a) {
+        return call(interpreter, new Object[]{a});
+    }
+
+    default Object call2(Interpreter interpreter, Object a, Object b) {
+        return call(interpreter, new Object[]{a, b});
+    }
+
+    default Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        return call(interpreter, new Object[]{a, b, c});
+    }
+
+    default Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        return call(interpreter, new Object[]{a, b, c, d});
+    }
 }
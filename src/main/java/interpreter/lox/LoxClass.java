@@ -1,29 +1,37 @@
 package interpreter.lox;
 
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 public class LoxClass implements LoxCallable{
     final String name;
     final LoxClass superclass;
-    private final Map<String, LoxFunction> methods;
+    // 상속받은 메서드까지 펼쳐 둔 메서드 표, 자기 메서드가 상위 클래스 메서드를 덮어쓴다
+    // 클래스 정의 시점에 한 번 만들고 바꾸지 않으므로 상속 깊이와 상관없이 조회는 한 번이다
+    private final Map<Symbol, LoxFunction> methods;
+    private final LoxFunction initializer;
+    private final int arity;
+    // 이 클래스 인스턴스들의 필드 배치가 시작되는 빈 Shape
+    final Shape emptyShape = new Shape();
 
-    LoxClass(String name, LoxClass superclass, Map<String, LoxFunction> methods) {
+    LoxClass(String name, LoxClass superclass, Map<Symbol, LoxFunction> methods) {
         this.superclass = superclass;
         this.name = name;
-        this.methods = methods;
-    }
-
-    LoxFunction findMethod(String name) {
-        if(methods.containsKey(name)) {
-            return methods.get(name);
-        }
 
+        Map<Symbol, LoxFunction> table = new HashMap<>();
         if(superclass != null) {
-            return superclass.findMethod(name);
+            table.putAll(superclass.methods);
         }
+        table.putAll(methods);
+        this.methods = Collections.unmodifiableMap(table);
+
+        this.initializer = table.get(Symbol.INIT);
+        this.arity = initializer == null ? 0 : initializer.arity();
+    }
 
-        return null;
+    LoxFunction findMethod(Symbol name) {
+        return methods.get(name);
     }
 
     @Override
@@ -31,19 +39,66 @@ public class LoxClass implements LoxCallable{
         return name;
     }
 
+    private LoxInstance instantiate() {
+        LoxEvents.instantiated(name);
+        return new LoxInstance(this);
+    }
+
     @Override
     public int arity() {
-        LoxFunction initializer = findMethod("init");
-        if(initializer == null) return 0;
-        return initializer.arity();
+        return arity;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        LoxInstance instance = instantiate();
+        if(initializer != null) {
+            initializer.invoke(interpreter, instance, arguments);
+        }
+        return instance;
+    }
+
+    @Override
+    public Object call0(Interpreter interpreter) {
+        LoxInstance instance = instantiate();
+        if(initializer != null) {
+            initializer.invoke0(interpreter, instance);
+        }
+        return instance;
+    }
+
+    @Override
+    public Object call1(Interpreter interpreter, Object a) {
+        LoxInstance instance = instantiate();
+        if(initializer != null) {
+            initializer.invoke1(interpreter, instance, a);
+        }
+        return instance;
+    }
+
+    @Override
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        LoxInstance instance = instantiate();
+        if(initializer != null) {
+            initializer.invoke2(interpreter, instance, a, b);
+        }
+        return instance;
+    }
+
+    @Override
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        LoxInstance instance = instantiate();
+        if(initializer != null) {
+            initializer.invoke3(interpreter, instance, a, b, c);
+        }
+        return instance;
     }
 
     @Override
-    public Object call(Interpreter interpreter, List<Object> arguments) {
-        LoxInstance instance = new LoxInstance(this);
-        LoxFunction initializer = findMethod("init");
+    public Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        LoxInstance instance = instantiate();
         if(initializer != null) {
-            initializer.bind(instance).call(interpreter, arguments);
+            initializer.invoke4(interpreter, instance, a, b, c, d);
         }
         return instance;
     }
@@ -0,0 +1,124 @@
+package interpreter.lox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Java Flight Recorder에 남기는 Lox 이벤트, 기록 중인 JFR의 GC, CPU 이벤트와 같은 시간축에 놓인다
+// 이벤트 클래스를 처음 읽으면 JFR 전체가 초기화되어(0.4초 남짓) 짧은 스크립트가 몇 배 느려지므로
+// JVM을 -XX:StartFlightRecording으로 띄운 경우에만 이벤트를 만든다, 실행 중에 jcmd로 시작한 기록에는 남지 않는다
+// Java 스택은 Lox 코드와 상관없는 visitCallExpr 등이라 스택 트레이스는 남기지 않는다
+final class LoxEvents {
+    // static final이라 JIT가 상수로 접어 꺼져 있으면 호출 경로에 검사가 남지 않는다
+    static final boolean ENABLED = FlightRecorder.isInitialized();
+
+    private LoxEvents() {
+    }
+
+    // 트리 순회, --nodes, --jit의 함수 호출, --vm은 호출이 Java 호출이 아니라 남기지 않는다
+    // 꼬리 호출로 이어진 함수는 처음 부른 함수의 이벤트에 들어간다
+    @Name("lox.FunctionCall")
+    @Label("Lox Function Call")
+    @Description("Lox function call that took longer than the threshold")
+    @Category("Lox")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static class FunctionCallEvent extends Event {
+        @Label("Function")
+        String function;
+
+        @Label("Line")
+        @Description("Line of the function declaration")
+        int line;
+    }
+
+    // 인스턴스마다 남으므로 기본으로 꺼 두고 설정 파일에서 켠다
+    @Name("lox.ClassInstantiation")
+    @Label("Lox Class Instantiation")
+    @Category("Lox")
+    @Enabled(false)
+    @StackTrace(false)
+    static class InstantiationEvent extends Event {
+        @Label("Class")
+        String className;
+    }
+
+    @Name("lox.RuntimeError")
+    @Label("Lox Runtime Error")
+    @Category("Lox")
+    @StackTrace(false)
+    static class RuntimeErrorEvent extends Event {
+        @Label("Message")
+        String message;
+
+        @Label("Line")
+        int line;
+    }
+
+    // Scanner는 Parser가 토큰을 달라고 할 때 읽으므로 scan 시간은 parse에 들어간다
+    @Name("lox.Phase")
+    @Label("Lox Phase")
+    @Description("Time spent in parse, resolve, optimize, execute or loading a cached script")
+    @Category("Lox")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    // 기록하지 않으면 null, 호출이 끝나면 endCall에 넘긴다
+    static FunctionCallEvent beginCall() {
+        if (!ENABLED) return null;
+        FunctionCallEvent event = new FunctionCallEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endCall(FunctionCallEvent event, Token name) {
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) {
+            event.function = name.lexeme;
+            event.line = name.line;
+            event.commit();
+        }
+    }
+
+    // 기록하지 않으면 null, 단계가 끝나면 endPhase에 넘긴다
+    static PhaseEvent beginPhase(String phase) {
+        if (!ENABLED) return null;
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    static void endPhase(PhaseEvent event) {
+        if (event != null) event.commit();
+    }
+
+    static void instantiated(String className) {
+        if (!ENABLED) return;
+        InstantiationEvent event = new InstantiationEvent();
+        if (event.shouldCommit()) {
+            event.className = className;
+            event.commit();
+        }
+    }
+
+    static void runtimeError(RuntimeError error) {
+        if (!ENABLED) return;
+        RuntimeErrorEvent event = new RuntimeErrorEvent();
+        if (event.shouldCommit()) {
+            event.message = error.getMessage();
+            event.line = error.token.line;
+            event.commit();
+        }
+    }
+}
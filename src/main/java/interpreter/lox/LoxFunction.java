@@ -1,23 +1,28 @@
 package interpreter.lox;
 
-import java.util.List;
-
 public class LoxFunction implements LoxCallable{
 
-    private final Stmt.Function fn;
-    private final Environment closure;
-    private final boolean isInitializer;
+    final Stmt.Function fn;
+    // 이 함수가 쓰는 바깥 지역 변수만 담는다(Resolver가 정한 captures 순서)
+    final Cell[] upvalues;
+    final boolean isInitializer;
+    // bind된 메서드의 this, 함수나 bind하지 않은 메서드는 null
+    final LoxInstance receiver;
+
+    public LoxFunction(Stmt.Function fn, Cell[] upvalues, boolean isInitializer) {
+        this(fn, upvalues, isInitializer, null);
+    }
 
-    public LoxFunction(Stmt.Function fn, Environment closure, boolean isInitializer) {
+    LoxFunction(Stmt.Function fn, Cell[] upvalues, boolean isInitializer, LoxInstance receiver) {
         this.fn = fn;
-        this.closure = closure;
+        this.upvalues = upvalues;
         this.isInitializer = isInitializer;
+        this.receiver = receiver;
     }
 
+    // 메서드를 값으로 꺼낼 때만 쓴다, 호출은 invoke로 this를 바로 넘긴다
     LoxFunction bind(LoxInstance instance) {
-        Environment environment = new Environment(closure);
-        environment.define("this", instance);
-        return new LoxFunction(fn, environment, isInitializer);
+        return new LoxFunction(fn, upvalues, isInitializer, instance);
     }
 
     @Override
@@ -27,25 +32,164 @@ public class LoxFunction implements LoxCallable{
 
     // lox의 core
     @Override
-    public Object call(Interpreter interpreter, List<Object> arguments) {
-        // 환경을 매번 새로 만들어야 nested function을 해결 할 수 있다
-        // Environment environment = new Environment(interpreter.globals);
-        Environment environment = new Environment(closure);
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        return invoke(interpreter, receiver, arguments);
+    }
 
-        for (int i = 0; i < fn.params.size(); i++) {
-            environment.define(fn.params.get(i).lexeme, arguments.get(i));
+    @Override
+    public Object call0(Interpreter interpreter) {
+        return invoke0(interpreter, receiver);
+    }
+
+    @Override
+    public Object call1(Interpreter interpreter, Object a) {
+        return invoke1(interpreter, receiver, a);
+    }
+
+    @Override
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        return invoke2(interpreter, receiver, a, b);
+    }
+
+    @Override
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        return invoke3(interpreter, receiver, a, b, c);
+    }
+
+    @Override
+    public Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        return invoke4(interpreter, receiver, a, b, c, d);
+    }
+
+    // 인자는 만든 프레임의 슬롯에 바로 넣는다
+    Object invoke(Interpreter interpreter, LoxInstance instance, Object[] arguments) {
+        ValueStack stack = stack(interpreter);
+        int previous = stack.push(fn.frameSize);
+        int slot = receive(stack, instance);
+        for (Object argument : arguments) {
+            stack.values[stack.fp + slot++] = argument;
         }
+        return run(interpreter, stack, previous, instance);
+    }
 
-        try {
-            interpreter.executeBlock(fn.body, environment);
-        } catch (Return returnValue) {
-            if(isInitializer) return closure.getAt(0, "this");
+    Object invoke0(Interpreter interpreter, LoxInstance instance) {
+        ValueStack stack = stack(interpreter);
+        int previous = stack.push(fn.frameSize);
+        receive(stack, instance);
+        return run(interpreter, stack, previous, instance);
+    }
+
+    Object invoke1(Interpreter interpreter, LoxInstance instance, Object a) {
+        ValueStack stack = stack(interpreter);
+        int previous = stack.push(fn.frameSize);
+        int slot = stack.fp + receive(stack, instance);
+        stack.values[slot] = a;
+        return run(interpreter, stack, previous, instance);
+    }
+
+    Object invoke2(Interpreter interpreter, LoxInstance instance, Object a, Object b) {
+        ValueStack stack = stack(interpreter);
+        int previous = stack.push(fn.frameSize);
+        int slot = stack.fp + receive(stack, instance);
+        stack.values[slot] = a;
+        stack.values[slot + 1] = b;
+        return run(interpreter, stack, previous, instance);
+    }
+
+    Object invoke3(Interpreter interpreter, LoxInstance instance, Object a, Object b, Object c) {
+        ValueStack stack = stack(interpreter);
+        int previous = stack.push(fn.frameSize);
+        int slot = stack.fp + receive(stack, instance);
+        stack.values[slot] = a;
+        stack.values[slot + 1] = b;
+        stack.values[slot + 2] = c;
+        return run(interpreter, stack, previous, instance);
+    }
+
+    Object invoke4(Interpreter interpreter, LoxInstance instance, Object a, Object b, Object c, Object d) {
+        ValueStack stack = stack(interpreter);
+        int previous = stack.push(fn.frameSize);
+        int slot = stack.fp + receive(stack, instance);
+        stack.values[slot] = a;
+        stack.values[slot + 1] = b;
+        stack.values[slot + 2] = c;
+        stack.values[slot + 3] = d;
+        return run(interpreter, stack, previous, instance);
+    }
+
+    // 지역 변수를 둘 값 스택, 노드 트리로 실행하는 함수는 NodeCompiler의 것을 쓴다
+    ValueStack stack(Interpreter interpreter) {
+        return interpreter.stack;
+    }
 
-            return returnValue.value;
+    // 메서드는 this가 프레임의 0번 슬롯, 인자가 그 다음 슬롯이다
+    // 첫 인자의 슬롯을 돌려준다
+    static int receive(ValueStack stack, LoxInstance instance) {
+        if (instance == null) return 0;
+
+        stack.values[stack.fp] = instance;
+        return 1;
+    }
+
+    // 인자까지 채운 프레임에서 이 함수의 upvalues로 본문을 실행할 준비를 한다
+    // 안쪽 함수가 잡은 this와 매개변수는 Cell로 감싼다
+    void enter(ValueStack stack) {
+        for (int slot : fn.cells) {
+            stack.values[stack.fp + slot] = new Cell(stack.values[stack.fp + slot]);
         }
+        stack.upvalues = upvalues;
+    }
+
+    // 본문을 실행하고, 끝나면 push로 연 값 스택 프레임을 닫고 호출한 함수의 upvalues로 돌아간다
+    // 꼬리 호출은 트램펄린으로 이 루프 안에서 이어서 실행해 Java 스택을 늘리지 않는다
+    Object run(Interpreter interpreter, ValueStack stack, int previous, LoxInstance instance) {
+        Cell[] enclosing = stack.upvalues;
+        Profiler profiler = Profiler.current;
+        if (profiler != null) profiler.enter(fn);
+        LoxEvents.FunctionCallEvent event = LoxEvents.beginCall();
+        try {
+            LoxFunction function = this;
+            while (true) {
+                function.enter(stack);
+                if(interpreter.executeBlock(function.fn.body) == Completion.NORMAL) {
+                    if(function.isInitializer) return instance;
+                    return null;
+                }
+
+                TailCall tail = interpreter.takeTailCall();
+                if(tail == null) {
+                    Object value = interpreter.takeReturnValue();
+                    if(function.isInitializer) return instance;
+
+                    return value;
+                }
 
-        if(isInitializer) return closure.getAt(0, "this");
-        return null;
+                // 다른 방식으로 실행되는 함수, 클래스, 네이티브는 그냥 부른다
+                if(tail.callee.getClass() != LoxFunction.class) {
+                    if(tail.receiver != null) {
+                        return ((LoxFunction) tail.callee).invoke(interpreter, tail.receiver, tail.arguments);
+                    }
+                    return tail.callee.call(interpreter, tail.arguments);
+                }
+
+                // 인자는 이미 평가했으므로 지금 프레임 자리를 다음 함수가 그대로 쓴다
+                // 잡힌 변수는 Cell로 빠져 있으므로 슬롯을 덮어써도 클로저는 영향을 받지 않는다
+                LoxFunction next = (LoxFunction) tail.callee;
+                instance = tail.receiver;
+                stack.resize(next.fn.frameSize);
+                int slot = receive(stack, instance);
+                for (Object argument : tail.arguments) {
+                    stack.values[stack.fp + slot++] = argument;
+                }
+                function = next;
+                if (profiler != null) profiler.replace(next.fn);
+            }
+        } finally {
+            if (profiler != null) profiler.exit();
+            LoxEvents.endCall(event, fn.name);
+            stack.upvalues = enclosing;
+            stack.pop(previous);
+        }
     }
 
     @Override
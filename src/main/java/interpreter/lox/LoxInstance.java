@@ -1,29 +1,50 @@
 package interpreter.lox;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public class LoxInstance {
-    private LoxClass klass;
-    private final Map<String, Object> fields = new HashMap<>();
+    private static final Object[] NO_FIELDS = new Object[0];
+
+    final LoxClass klass;
+    // 필드 이름은 shape가 갖고, 인스턴스는 값 배열만 갖는다
+    Shape shape;
+    Object[] fields = NO_FIELDS;
 
     LoxInstance(LoxClass klass) {
         this.klass = klass;
+        this.shape = klass.emptyShape;
     }
 
+    // PropertyCache를 거치지 않는 조회
     Object get(Token name) {
-        if(fields.containsKey(name.lexeme)) {
-            return fields.get(name.lexeme);
+        int slot = shape.slotOf(name.symbol);
+        if(slot >= 0) {
+            return fields[slot];
         }
 
-        LoxFunction method = klass.findMethod(name.lexeme);
+        LoxFunction method = klass.findMethod(name.symbol);
         if(method != null) return method.bind(this);
 
         throw new RuntimeError(name, "Undefined Property '" + name.lexeme + "'.");
     }
 
     void set(Token name, Object value) {
-        fields.put(name.lexeme, value);
+        int slot = shape.slotOf(name.symbol);
+        if(slot >= 0) {
+            fields[slot] = value;
+            return;
+        }
+
+        addField(shape.withField(name.symbol), value);
+    }
+
+    // next는 현재 shape에 필드 하나를 추가한 Shape
+    void addField(Shape next, Object value) {
+        if(fields.length < next.size) {
+            fields = Arrays.copyOf(fields, Math.max(4, fields.length * 2));
+        }
+        fields[next.size - 1] = value;
+        shape = next;
     }
 
     @Override
@@ -0,0 +1,247 @@
+package interpreter.lox;
+
+import java.util.List;
+
+// Resolver를 통과한 AST를 미리 연결된 실행 노드(ExprNode, StmtNode) 트리로 바꾼다
+// Interpreter.interpret를 그대로 대신할 수 있으며, 실행 중에는 Visitor를 거치지 않는다
+class NodeCompiler implements Expr.Visitor<ExprNode>, Stmt.Visitor<StmtNode> {
+
+    final Environment globals = new Environment();
+    // 지역 변수를 담는 값 스택, 노드가 직접 참조한다
+    final ValueStack stack = new ValueStack();
+    // --hot-lines 옵션을 주면 문장 노드를 StmtNode.Counted로 감싸 줄별로 센다
+    private LineCounts counts = null;
+
+    NodeCompiler() {
+        globals.define(Symbol.intern("clock"), new LoxCallable() {
+            @Override
+            public int arity() {
+                return 0;
+            }
+
+            @Override
+            public Object call(Interpreter interpreter, Object[] arguments) {
+                return call0(interpreter);
+            }
+
+            @Override
+            public Object call0(Interpreter interpreter) {
+                return (double) System.currentTimeMillis() / 1000.0;
+            }
+
+            @Override
+            public String toString() {
+                return "<native fn>";
+            }
+        });
+    }
+
+    void countLines(LineCounts counts) {
+        this.counts = counts;
+    }
+
+    // frameSize는 최상위 코드의 블록이 쓰는 프레임 크기(Resolver.frameSize)
+    void interpret(List<Stmt> statements, int frameSize) {
+        StmtNode[] program = compile(statements);
+        stack.resize(frameSize);
+        try {
+            StmtNode.executeAll(program);
+        } catch (RuntimeError error) {
+            Lox.runtimeError(error);
+        }
+    }
+
+    private StmtNode[] compile(List<Stmt> statements) {
+        StmtNode[] nodes = new StmtNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compile(statements.get(i));
+        }
+        return nodes;
+    }
+
+    private StmtNode compile(Stmt stmt) {
+        StmtNode node = stmt.accept(this);
+        if (counts == null) return node;
+
+        return stmt.line == -1 ? node : new StmtNode.Counted(counts, stmt.line, node);
+    }
+
+    private ExprNode compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    @Override
+    public StmtNode visitBlockStmt(Stmt.Block stmt) {
+        return new StmtNode.Block(compile(stmt.statements));
+    }
+
+    @Override
+    public StmtNode visitClassStmt(Stmt.Class stmt) {
+        ExprNode superclass = null;
+        if (stmt.superclass != null) {
+            superclass = compile(stmt.superclass);
+        }
+
+        StmtNode.Method[] methods = new StmtNode.Method[stmt.methods.size()];
+        for (int i = 0; i < methods.length; i++) {
+            Stmt.Function method = stmt.methods.get(i);
+            methods[i] = new StmtNode.Method(method, compile(method.body));
+        }
+
+        return new StmtNode.Class(stack, globals, stmt, superclass, methods);
+    }
+
+    @Override
+    public StmtNode visitExpressionStmt(Stmt.Expression stmt) {
+        return new StmtNode.Expression(compile(stmt.expression));
+    }
+
+    @Override
+    public StmtNode visitFunctionStmt(Stmt.Function stmt) {
+        return new StmtNode.Function(stack, globals, stmt, compile(stmt.body));
+    }
+
+    @Override
+    public StmtNode visitIfStmt(Stmt.If stmt) {
+        StmtNode elseBranch = stmt.elseBranch == null ? null : compile(stmt.elseBranch);
+        return new StmtNode.If(compile(stmt.condition), compile(stmt.thenBranch), elseBranch);
+    }
+
+    @Override
+    public StmtNode visitPrintStmt(Stmt.Print stmt) {
+        return new StmtNode.Print(compile(stmt.expression));
+    }
+
+    @Override
+    public StmtNode visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.tail) return new StmtNode.TailReturn(stack, (ExprNode.Calling) compile(stmt.value));
+        return new StmtNode.Return(stack, stmt.value == null ? null : compile(stmt.value));
+    }
+
+    @Override
+    public StmtNode visitVarStmt(Stmt.Var stmt) {
+        ExprNode initializer = stmt.initializer == null ? null : compile(stmt.initializer);
+        if (stmt.slot != -1) return new StmtNode.FrameVar(stack, stmt.slot, stmt.boxed, initializer);
+        return new StmtNode.Var(globals, stmt.name, initializer);
+    }
+
+    @Override
+    public StmtNode visitWhileStmt(Stmt.While stmt) {
+        return new StmtNode.While(compile(stmt.condition), compile(stmt.body));
+    }
+
+    @Override
+    public ExprNode visitAssignExpr(Expr.Assign expr) {
+        ExprNode value = compile(expr.value);
+        if (expr.slot == -1) return new ExprNode.GlobalSet(globals, expr.name, value);
+        if (expr.upvalue) return new ExprNode.UpvalueSet(stack, expr.slot, value);
+        if (expr.boxed) return new ExprNode.CellSet(stack, expr.slot, value);
+        return new ExprNode.FrameSet(stack, expr.slot, value);
+    }
+
+    // 연산자마다 전용 노드를 골라 실행 시점의 switch를 없앤다
+    @Override
+    public ExprNode visitBinaryExpr(Expr.Binary expr) {
+        ExprNode left = compile(expr.left);
+        ExprNode right = compile(expr.right);
+        Token operator = expr.operator;
+
+        switch (operator.type) {
+            case GREATER: return new ExprNode.Greater(left, operator, right);
+            case GREATER_EQUAL: return new ExprNode.GreaterEqual(left, operator, right);
+            case LESS: return new ExprNode.Less(left, operator, right);
+            case LESS_EQUAL: return new ExprNode.LessEqual(left, operator, right);
+            case MINUS: return new ExprNode.Subtract(left, operator, right);
+            case PLUS: return new ExprNode.Add(left, operator, right);
+            case SLASH: return new ExprNode.Divide(left, operator, right);
+            case STAR: return new ExprNode.Multiply(left, operator, right);
+            case BANG_EQUAL: return new ExprNode.NotEqual(left, operator, right);
+            case EQUAL: return new ExprNode.Equal(left, operator, right);
+        }
+
+        // 실행되지 않는다
+        return new ExprNode.Constant(null);
+    }
+
+    @Override
+    public ExprNode visitCallExpr(Expr.Call expr) {
+        ExprNode[] arguments = new ExprNode[expr.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = compile(expr.arguments.get(i));
+        }
+        if (expr.callee instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get) expr.callee;
+            return new ExprNode.Invoke(compile(get.object), get.name, expr.paren, arguments);
+        }
+        if (expr.callee instanceof Expr.Super) {
+            return new ExprNode.SuperInvoke((ExprNode.Super) compile(expr.callee), expr.paren, arguments);
+        }
+        return new ExprNode.Call(compile(expr.callee), expr.paren, arguments);
+    }
+
+    @Override
+    public ExprNode visitInlineExpr(Expr.Inline expr) {
+        return new ExprNode.Inline(globals, expr.function, compile(expr.call), compile(expr.body));
+    }
+
+    @Override
+    public ExprNode visitGetExpr(Expr.Get expr) {
+        return new ExprNode.Get(compile(expr.object), expr.name);
+    }
+
+    @Override
+    public ExprNode visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.expression);
+    }
+
+    @Override
+    public ExprNode visitLiteralExpr(Expr.Literal expr) {
+        return new ExprNode.Constant(expr.value);
+    }
+
+    @Override
+    public ExprNode visitLogicalExpr(Expr.Logical expr) {
+        ExprNode left = compile(expr.left);
+        ExprNode right = compile(expr.right);
+        if (expr.operator.type == TokenType.OR) {
+            return new ExprNode.Or(left, right);
+        }
+        return new ExprNode.And(left, right);
+    }
+
+    @Override
+    public ExprNode visitSetExpr(Expr.Set expr) {
+        return new ExprNode.Set(compile(expr.object), expr.name, compile(expr.value));
+    }
+
+    @Override
+    public ExprNode visitSuperExpr(Expr.Super expr) {
+        return new ExprNode.Super(compile(expr.superclass), compile(expr.self), expr.method);
+    }
+
+    @Override
+    public ExprNode visitThisExpr(Expr.This expr) {
+        return local(expr.slot, expr.upvalue, expr.boxed);
+    }
+
+    @Override
+    public ExprNode visitUnaryExpr(Expr.Unary expr) {
+        ExprNode right = compile(expr.right);
+        if (expr.operator.type == TokenType.MINUS) {
+            return new ExprNode.Negate(expr.operator, right);
+        }
+        return new ExprNode.Not(right);
+    }
+
+    @Override
+    public ExprNode visitVariableExpr(Expr.Variable expr) {
+        if (expr.slot == -1) return new ExprNode.GlobalGet(globals, expr.name);
+        return local(expr.slot, expr.upvalue, expr.boxed);
+    }
+
+    private ExprNode local(int slot, boolean upvalue, boolean boxed) {
+        if (upvalue) return new ExprNode.UpvalueGet(stack, slot);
+        if (boxed) return new ExprNode.CellGet(stack, slot);
+        return new ExprNode.FrameGet(stack, slot);
+    }
+}
@@ -0,0 +1,82 @@
+package interpreter.lox;
+
+// NodeCompiler가 만든 본문을 실행하는 함수
+// 환경 구조는 LoxFunction과 같아서 LoxClass, LoxInstance를 그대로 쓴다
+public class NodeFunction extends LoxFunction {
+
+    private final StmtNode[] body;
+    // NodeCompiler의 값 스택, 노드로 실행할 때는 Interpreter가 없다
+    private final ValueStack stack;
+
+    NodeFunction(Stmt.Function fn, StmtNode[] body, ValueStack stack, Cell[] upvalues,
+                 boolean isInitializer) {
+        this(fn, body, stack, upvalues, isInitializer, null);
+    }
+
+    private NodeFunction(Stmt.Function fn, StmtNode[] body, ValueStack stack, Cell[] upvalues,
+                         boolean isInitializer, LoxInstance receiver) {
+        super(fn, upvalues, isInitializer, receiver);
+        this.body = body;
+        this.stack = stack;
+    }
+
+    @Override
+    LoxFunction bind(LoxInstance instance) {
+        return new NodeFunction(fn, body, stack, upvalues, isInitializer, instance);
+    }
+
+    @Override
+    ValueStack stack(Interpreter interpreter) {
+        return stack;
+    }
+
+    // LoxFunction.run과 같다, 반환 값과 꼬리 호출을 Interpreter 대신 값 스택에서 꺼낸다
+    @Override
+    Object run(Interpreter interpreter, ValueStack stack, int previous, LoxInstance instance) {
+        Cell[] enclosing = stack.upvalues;
+        Profiler profiler = Profiler.current;
+        if (profiler != null) profiler.enter(fn);
+        LoxEvents.FunctionCallEvent event = LoxEvents.beginCall();
+        try {
+            NodeFunction function = this;
+            while (true) {
+                function.enter(stack);
+                if (StmtNode.executeAll(function.body) == Completion.NORMAL) {
+                    if (function.isInitializer) return instance;
+                    return null;
+                }
+
+                TailCall tail = stack.tailCall;
+                if (tail == null) {
+                    Object value = stack.returnValue;
+                    stack.returnValue = null;
+                    if (function.isInitializer) return instance;
+
+                    return value;
+                }
+                stack.tailCall = null;
+
+                // 클래스, 네이티브 함수는 그냥 부른다
+                if (!(tail.callee instanceof NodeFunction)) {
+                    return tail.callee.call(interpreter, tail.arguments);
+                }
+
+                // 인자는 이미 평가했으므로 지금 프레임 자리를 다음 함수가 그대로 쓴다
+                NodeFunction next = (NodeFunction) tail.callee;
+                instance = tail.receiver;
+                stack.resize(next.fn.frameSize);
+                int slot = receive(stack, instance);
+                for (Object argument : tail.arguments) {
+                    stack.values[stack.fp + slot++] = argument;
+                }
+                function = next;
+                if (profiler != null) profiler.replace(next.fn);
+            }
+        } finally {
+            if (profiler != null) profiler.exit();
+            LoxEvents.endCall(event, fn.name);
+            stack.upvalues = enclosing;
+            stack.pop(previous);
+        }
+    }
+}
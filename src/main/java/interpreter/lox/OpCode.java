@@ -0,0 +1,50 @@
+package interpreter.lox;
+
+// VM 명령어 목록
+// enum은 switch마다 ordinal 배열을 거치므로 byte 상수로 둔다
+final class OpCode {
+    static final byte CONSTANT = 0;          // u16 상수 번호
+    static final byte NIL = 1;
+    static final byte TRUE = 2;
+    static final byte FALSE = 3;
+    static final byte POP = 4;
+    static final byte GET_LOCAL = 5;         // u8 슬롯
+    static final byte SET_LOCAL = 6;         // u8 슬롯
+    static final byte GET_GLOBAL = 7;        // u16 전역 번호
+    static final byte DEFINE_GLOBAL = 8;     // u16 전역 번호
+    static final byte SET_GLOBAL = 9;        // u16 전역 번호
+    static final byte GET_UPVALUE = 10;      // u8 업밸류 번호
+    static final byte SET_UPVALUE = 11;      // u8 업밸류 번호
+    static final byte GET_PROPERTY = 12;     // u16 이름 상수
+    static final byte SET_PROPERTY = 13;     // u16 이름 상수
+    static final byte GET_SUPER = 14;        // u16 이름 상수
+    static final byte EQUAL = 15;
+    static final byte GREATER = 16;
+    static final byte GREATER_EQUAL = 17;
+    static final byte LESS = 18;
+    static final byte LESS_EQUAL = 19;
+    static final byte ADD = 20;
+    static final byte SUBTRACT = 21;
+    static final byte MULTIPLY = 22;
+    static final byte DIVIDE = 23;
+    static final byte NOT = 24;
+    static final byte NEGATE = 25;
+    static final byte PRINT = 26;
+    static final byte JUMP = 27;             // u16 전방 오프셋
+    static final byte JUMP_IF_FALSE = 28;    // u16 전방 오프셋, 값을 남긴다
+    static final byte JUMP_IF_TRUE = 29;     // u16 전방 오프셋, 값을 남긴다
+    static final byte POP_JUMP_IF_FALSE = 30;// u16 전방 오프셋, 값을 꺼낸다
+    static final byte LOOP = 31;             // u16 후방 오프셋
+    static final byte CALL = 32;             // u8 인수 개수
+    static final byte INVOKE = 33;           // u16 이름 상수, u8 인수 개수
+    static final byte SUPER_INVOKE = 34;     // u16 이름 상수, u8 인수 개수
+    static final byte CLOSURE = 35;          // u16 함수 상수, (u8 isLocal, u8 index) * 업밸류 수
+    static final byte CLOSE_UPVALUE = 36;
+    static final byte RETURN = 37;
+    static final byte CLASS = 38;            // u16 이름 상수
+    static final byte INHERIT = 39;
+    static final byte METHOD = 40;           // u16 이름 상수
+
+    private OpCode() {
+    }
+}
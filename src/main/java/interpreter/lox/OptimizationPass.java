@@ -0,0 +1,265 @@
+package interpreter.lox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resolver를 통과한 AST를 실행 전에 다시 쓰는 최적화 패스의 바탕
+// 기본 동작은 자식을 차례로 다시 쓰고, 바뀐 자식이 있을 때만 노드를 새로 만든다
+// 새 노드에는 Resolver가 채운 필드(slot, upvalue, boxed, frameSize, cells, captures, tail 등)를 그대로 옮긴다
+abstract class OptimizationPass implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+    private int rewrites = 0;
+
+    // --no-opt=<name>으로 끌 때 쓰는 이름
+    abstract String name();
+
+    List<Stmt> run(List<Stmt> statements) {
+        return rewriteAll(statements);
+    }
+
+    // 이번 실행에서 다시 쓴 노드 수
+    int rewrites() {
+        return rewrites;
+    }
+
+    void rewrote() {
+        rewrites++;
+    }
+
+    Expr rewrite(Expr expr) {
+        if (expr == null) return null;
+        return expr.accept(this);
+    }
+
+    // null이면 문장을 지운다
+    Stmt rewrite(Stmt stmt) {
+        if (stmt == null) return null;
+        return stmt.accept(this);
+    }
+
+    // 지워진 문장은 목록에서 빼고, 바뀐 것이 없으면 원래 목록을 돌려준다
+    List<Stmt> rewriteAll(List<Stmt> statements) {
+        List<Stmt> result = null;
+        for (int i = 0; i < statements.size(); i++) {
+            Stmt stmt = statements.get(i);
+            Stmt rewritten = rewrite(stmt);
+            if (rewritten != stmt && result == null) {
+                result = new ArrayList<>(statements.subList(0, i));
+            }
+            if (result != null && rewritten != null) result.add(rewritten);
+        }
+        return result == null ? statements : result;
+    }
+
+    // if, while의 몸체처럼 문장이 꼭 있어야 하는 자리는 지워지면 빈 블록으로 채운다
+    Stmt rewriteBranch(Stmt stmt) {
+        Stmt rewritten = rewrite(stmt);
+        if (rewritten == null && stmt != null) {
+            return new Stmt.Block(new ArrayList<>());
+        }
+        return rewritten;
+    }
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        Expr value = rewrite(expr.value);
+        if (value == expr.value) return expr;
+
+        Expr.Assign assign = new Expr.Assign(expr.name, value);
+        assign.slot = expr.slot;
+        assign.upvalue = expr.upvalue;
+        assign.boxed = expr.boxed;
+        return assign;
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr left = rewrite(expr.left);
+        Expr right = rewrite(expr.right);
+        if (left == expr.left && right == expr.right) return expr;
+        return new Expr.Binary(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitCallExpr(Expr.Call expr) {
+        Expr callee = rewrite(expr.callee);
+        List<Expr> arguments = rewriteArguments(expr.arguments);
+        if (callee == expr.callee && arguments == expr.arguments) return expr;
+        return new Expr.Call(callee, expr.paren, arguments);
+    }
+
+    private List<Expr> rewriteArguments(List<Expr> arguments) {
+        List<Expr> result = null;
+        for (int i = 0; i < arguments.size(); i++) {
+            Expr argument = arguments.get(i);
+            Expr rewritten = rewrite(argument);
+            if (rewritten != argument && result == null) {
+                result = new ArrayList<>(arguments.subList(0, i));
+            }
+            if (result != null) result.add(rewritten);
+        }
+        return result == null ? arguments : result;
+    }
+
+    @Override
+    public Expr visitGetExpr(Expr.Get expr) {
+        Expr object = rewrite(expr.object);
+        if (object == expr.object) return expr;
+        return new Expr.Get(object, expr.name);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        Expr expression = rewrite(expr.expression);
+        if (expression == expr.expression) return expr;
+        return new Expr.Grouping(expression);
+    }
+
+    @Override
+    public Expr visitInlineExpr(Expr.Inline expr) {
+        Expr body = rewrite(expr.body);
+        if (body == expr.body) return expr;
+        return new Expr.Inline(expr.call, expr.function, body);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        Expr left = rewrite(expr.left);
+        Expr right = rewrite(expr.right);
+        if (left == expr.left && right == expr.right) return expr;
+        return new Expr.Logical(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitSetExpr(Expr.Set expr) {
+        Expr object = rewrite(expr.object);
+        Expr value = rewrite(expr.value);
+        if (object == expr.object && value == expr.value) return expr;
+        return new Expr.Set(object, expr.name, value);
+    }
+
+    @Override
+    public Expr visitSuperExpr(Expr.Super expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitThisExpr(Expr.This expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = rewrite(expr.right);
+        if (right == expr.right) return expr;
+        return new Expr.Unary(expr.operator, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        return expr;
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        List<Stmt> statements = rewriteAll(stmt.statements);
+        if (statements == stmt.statements) return stmt;
+
+        return new Stmt.Block(statements);
+    }
+
+    @Override
+    public Stmt visitClassStmt(Stmt.Class stmt) {
+        List<Stmt.Function> methods = null;
+        for (int i = 0; i < stmt.methods.size(); i++) {
+            Stmt.Function method = stmt.methods.get(i);
+            Stmt.Function rewritten = (Stmt.Function) rewrite(method);
+            if (rewritten != method && methods == null) {
+                methods = new ArrayList<>(stmt.methods.subList(0, i));
+            }
+            if (methods != null) methods.add(rewritten);
+        }
+        if (methods == null) return stmt;
+
+        Stmt.Class klass = new Stmt.Class(stmt.name, stmt.superclass, methods);
+        klass.slot = stmt.slot;
+        klass.boxed = stmt.boxed;
+        klass.superSlot = stmt.superSlot;
+        klass.superBoxed = stmt.superBoxed;
+        return klass;
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expression = rewrite(stmt.expression);
+        if (expression == stmt.expression) return stmt;
+        return new Stmt.Expression(expression);
+    }
+
+    @Override
+    public Stmt visitFunctionStmt(Stmt.Function stmt) {
+        List<Stmt> body = rewriteAll(stmt.body);
+        if (body == stmt.body) return stmt;
+
+        Stmt.Function function = new Stmt.Function(stmt.name, stmt.params, body);
+        function.frameSize = stmt.frameSize;
+        function.cells = stmt.cells;
+        function.captures = stmt.captures;
+        function.slot = stmt.slot;
+        function.boxed = stmt.boxed;
+        return function;
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        Expr condition = rewrite(stmt.condition);
+        Stmt thenBranch = rewriteBranch(stmt.thenBranch);
+        Stmt elseBranch = rewriteBranch(stmt.elseBranch);
+        if (condition == stmt.condition && thenBranch == stmt.thenBranch
+                && elseBranch == stmt.elseBranch) {
+            return stmt;
+        }
+        return new Stmt.If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        Expr expression = rewrite(stmt.expression);
+        if (expression == stmt.expression) return stmt;
+        return new Stmt.Print(expression);
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Stmt.Return stmt) {
+        Expr value = rewrite(stmt.value);
+        if (value == stmt.value) return stmt;
+
+        Stmt.Return result = new Stmt.Return(stmt.keyword, value);
+        // 꼬리 호출이었던 값이 호출이 아니게 바뀌면 더 이상 꼬리 호출이 아니다
+        result.tail = stmt.tail && value instanceof Expr.Call;
+        return result;
+    }
+
+    @Override
+    public Stmt visitVarStmt(Stmt.Var stmt) {
+        Expr initializer = rewrite(stmt.initializer);
+        if (initializer == stmt.initializer) return stmt;
+
+        Stmt.Var var = new Stmt.Var(stmt.name, initializer);
+        var.slot = stmt.slot;
+        var.boxed = stmt.boxed;
+        return var;
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        Expr condition = rewrite(stmt.condition);
+        Stmt body = rewriteBranch(stmt.body);
+        if (condition == stmt.condition && body == stmt.body) return stmt;
+        return new Stmt.While(condition, body);
+    }
+}
@@ -0,0 +1,57 @@
+package interpreter.lox;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Resolver와 실행 사이에서 최적화 패스를 차례로 돌린다
+// 패스는 이름으로 하나씩 끌 수 있고, report를 켜면 패스마다 다시 쓴 노드 수를 stderr에 남긴다
+class Optimizer {
+    private final List<OptimizationPass> passes = new ArrayList<>();
+    private final Set<String> disabled = new HashSet<>();
+    private boolean enabled = true;
+    private boolean report = false;
+
+    Optimizer() {
+        passes.add(new ConstantFolding());
+        passes.add(new DeadBranchElimination());
+        passes.add(new UnreachableCodeElimination());
+        // 다른 패스가 줄여 둔 본문을 인라인하도록 마지막에 둔다
+        passes.add(new Inlining());
+    }
+
+    void disableAll() {
+        enabled = false;
+    }
+
+    // 없는 이름이면 false
+    boolean disable(String name) {
+        for (OptimizationPass pass : passes) {
+            if (pass.name().equals(name)) {
+                disabled.add(name);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void enableReport() {
+        report = true;
+    }
+
+    List<Stmt> optimize(List<Stmt> statements) {
+        if (!enabled) return statements;
+
+        for (OptimizationPass pass : passes) {
+            if (disabled.contains(pass.name())) continue;
+
+            int before = pass.rewrites();
+            statements = pass.run(statements);
+            if (report) {
+                System.err.println("[opt] " + pass.name() + ": " + (pass.rewrites() - before) + " rewrites");
+            }
+        }
+        return statements;
+    }
+}
@@ -9,10 +9,10 @@ import static interpreter.lox.TokenType.*;
 // 파서는 올바름을 판정하지 않으며, AST를 생성하는 책임만을 가진다
 public class Parser {
     private static class ParseError extends RuntimeException {}
-    private final List<Token> tokens;
+    private final TokenBuffer tokens;
     private int current = 0;
 
-    Parser(List<Token> tokens) {
+    Parser(TokenBuffer tokens) {
         this.tokens = tokens;
     }
 
@@ -23,12 +23,28 @@ public class Parser {
 //            return null;
 //        }
         List<Stmt> statements = new ArrayList<>();
-        while (!isAtEnd()) {
-            statements.add(declaration());
+        while (hasNext()) {
+            statements.add(next());
         }
         return statements;
     }
 
+    boolean hasNext() {
+        return !isAtEnd();
+    }
+
+    // 최상위 선언 하나를 읽는다, 문법 에러면 null
+    // 다 읽은 선언의 토큰은 버리므로 TokenBuffer에는 지금 읽는 선언의 토큰만 남는다
+    Stmt next() {
+        Stmt stmt = declaration();
+        // 이전 토큰 하나는 synchronize와 에러 보고가 쓸 수 있어 남긴다
+        if (current > 1) {
+            tokens.discard(current - 1);
+            current = 1;
+        }
+        return stmt;
+    }
+
     private Stmt declaration() {
         try {
             if (match(CLASS)) return classDeclaration();
@@ -48,19 +64,18 @@ public class Parser {
         Expr.Variable superclass = null;
         // >
         if(match(LESS)) {
-            consume(IDENTIFIER, "Expect superclass name.");
             // Dog(name) < Animal(superclass)
-            superclass = new Expr.Variable(previous());
+            superclass = new Expr.Variable(consume(IDENTIFIER, "Expect superclass name."));
         }
 
-        consume(LEFT_BRACE, "Expect '{' before class body");
+        expect(LEFT_BRACE, "Expect '{' before class body");
 
         List<Stmt.Function> methods = new ArrayList<>();
         while(!check(RIGHT_BRACE) && !isAtEnd()) {
             methods.add(function("method"));
         }
 
-        consume(RIGHT_BRACE, "Expect '}' after class body.");
+        expect(RIGHT_BRACE, "Expect '}' after class body.");
 
         return new Stmt.Class(name, superclass, methods);
     }
@@ -77,7 +92,7 @@ public class Parser {
     }
 
     private Stmt forStatement() {
-        consume(LEFT_PAREN, "Expect '(' after 'for'.");
+        expect(LEFT_PAREN, "Expect '(' after 'for'.");
 
         Stmt initializer;
         if(match(SEMICOLON)) {
@@ -93,13 +108,13 @@ public class Parser {
         if (!check(SEMICOLON)) {
             condition = expression();
         }
-        consume(SEMICOLON, "Expect ';' after loop condition");
+        expect(SEMICOLON, "Expect ';' after loop condition");
 
         Expr increment = null;
         if(!check(RIGHT_PAREN)) {
             increment = expression();
         }
-        consume(RIGHT_PAREN, "Expect ')' after for clauses.");
+        expect(RIGHT_PAREN, "Expect ')' after for clauses.");
         Stmt body = statement();
 
         if(increment != null) {
@@ -123,9 +138,9 @@ public class Parser {
     }
 
     private Stmt ifStatement() {
-        consume(LEFT_PAREN, "Expect '(' after 'if'.");
+        expect(LEFT_PAREN, "Expect '(' after 'if'.");
         Expr condition = expression();
-        consume(RIGHT_PAREN, "Expect ')' after if condition.");
+        expect(RIGHT_PAREN, "Expect ')' after if condition.");
 
         Stmt thenBranch = statement();
         Stmt elseBranch = null;
@@ -139,7 +154,7 @@ public class Parser {
 
     private Stmt printStatement() {
         Expr value = expression();
-        consume(SEMICOLON, "Expect ';' after value.");
+        expect(SEMICOLON, "Expect ';' after value.");
         return new Stmt.Print(value);
     }
 
@@ -150,7 +165,7 @@ public class Parser {
             value = expression();
         }
 
-        consume(SEMICOLON, "Expect ';' after return value.");
+        expect(SEMICOLON, "Expect ';' after return value.");
         return new Stmt.Return(keyword, value);
     }
 
@@ -162,14 +177,14 @@ public class Parser {
             initializer = expression();
         }
 
-        consume(SEMICOLON, "Expect ';' after variable declaration.");
+        expect(SEMICOLON, "Expect ';' after variable declaration.");
         return new Stmt.Var(name, initializer);
     }
 
     private Stmt whileStatement() {
-        consume(LEFT_PAREN, "Expect '(' after 'while'.");
+        expect(LEFT_PAREN, "Expect '(' after 'while'.");
         Expr condition = expression();
-        consume(RIGHT_PAREN, "Expect ')' after condition.");
+        expect(RIGHT_PAREN, "Expect ')' after condition.");
         Stmt body = statement();
 
         return new Stmt.While(condition, body);
@@ -177,13 +192,13 @@ public class Parser {
 
     private Stmt expressionStatement() {
         Expr expr = expression();
-        consume(SEMICOLON, "Expect ';' after expression.");
+        expect(SEMICOLON, "Expect ';' after expression.");
         return new Stmt.Expression(expr);
     }
 
     private Stmt.Function function(String kind) {
         Token name = consume(IDENTIFIER, "Expect " + kind + "name.");
-        consume(LEFT_PAREN, "Expect '(' after " + kind + " name.");
+        expect(LEFT_PAREN, "Expect '(' after " + kind + " name.");
         List<Token> parameters = new ArrayList<>();
         if(!check(RIGHT_PAREN)) {
             do {
@@ -194,9 +209,9 @@ public class Parser {
                 parameters.add(consume(IDENTIFIER, "Expect parameter name."));
             } while (match(COMMA));
         }
-        consume(RIGHT_PAREN, "Expect ')' after parameters.");
+        expect(RIGHT_PAREN, "Expect ')' after parameters.");
 
-        consume(LEFT_BRACE, "Expect '{' before " + kind + " body.");
+        expect(LEFT_BRACE, "Expect '{' before " + kind + " body.");
         List<Stmt> body = block();
         return new Stmt.Function(name, parameters, body);
     }
@@ -208,7 +223,7 @@ public class Parser {
             statements.add(declaration());
         }
 
-        consume(RIGHT_BRACE, "Expect '}' after block.");
+        expect(RIGHT_BRACE, "Expect '}' after block.");
         return statements;
     }
 
@@ -222,7 +237,8 @@ public class Parser {
         Expr expr = or();
 
         if (match(EQUAL)) {
-            Token equals = previous();
+            // 에러가 날 때만 Token을 만든다
+            int equals = current - 1;
             Expr value = assignment();
 
             if(expr instanceof Expr.Variable) {
@@ -233,7 +249,7 @@ public class Parser {
                 return new Expr.Set(get.object, get.name, value);
             }
 
-            error(equals, "Invalid assignment target.");
+            error(tokens.token(equals), "Invalid assignment target.");
         }
 
         return expr;
@@ -365,12 +381,12 @@ public class Parser {
 
         if (match(NUMBER, STRING)) {
 //            System.out.println("current: " + tokens.get(current));
-            return new Expr.Literal(previous().literal);
+            return new Expr.Literal(tokens.literal(current - 1));
         }
 
         if(match(SUPER)) {
             Token keyword = previous();
-            consume(DOT, "Expect '.' after 'super'.");
+            expect(DOT, "Expect '.' after 'super'.");
             Token method = consume(IDENTIFIER, "Expect superclass method name.");
             return new Expr.Super(keyword, method);
         }
@@ -383,7 +399,7 @@ public class Parser {
 
         if (match(LEFT_PAREN)) {
             Expr expr = expression();
-            consume(RIGHT_PAREN, "Expect ')' after expression.");
+            expect(RIGHT_PAREN, "Expect ')' after expression.");
             return new Expr.Grouping(expr);
         }
 
@@ -404,7 +420,16 @@ public class Parser {
 
     // 소비하며 검증한다
     private Token consume(TokenType type, String message) {
-        if (check(type)) return advance();
+        expect(type, message);
+        return previous();
+    }
+
+    // consume과 같지만 AST에 남기지 않는 구두점이라 Token을 만들지 않는다
+    private void expect(TokenType type, String message) {
+        if (check(type)) {
+            advance();
+            return;
+        }
 
         throw error(peek(), message);
     }
@@ -412,28 +437,28 @@ public class Parser {
     // 토큰을 소모하지 않는다
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().type == type;
+        return tokens.type(current) == type;
     }
 
-    // 토큰을 소비하고 리턴한다
-    private Token advance() {
+    // 토큰을 소비한다, 필요하면 previous로 꺼낸다
+    private void advance() {
         if (!isAtEnd()) current++;
-        return previous();
     }
 
     // 파싱할 토큰 확인
     private boolean isAtEnd() {
-        return peek().type == EOF;
+        return tokens.type(current) == EOF;
     }
 
     // 토큰을 소비하지 않으며, 현재 토큰을 리턴한다
+    // 에러를 낼 때만 쓰므로 그때 Token을 만든다
     private Token peek() {
-        return tokens.get(current);
+        return tokens.token(current);
     }
 
     // 토큰을 소비하지 않으며 이전 토큰을 리턴한다
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.token(current - 1);
     }
 
     private ParseError error(Token token, String message) {
@@ -445,9 +470,9 @@ public class Parser {
         advance();
 
         while(!isAtEnd()) {
-            if(previous().type == SEMICOLON) return;
+            if(tokens.type(current - 1) == SEMICOLON) return;
 
-            switch (peek().type) {
+            switch (tokens.type(current)) {
                 case CLASS:
                 case FUN:
                 case VAR:
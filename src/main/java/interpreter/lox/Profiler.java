@@ -0,0 +1,180 @@
+package interpreter.lox;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Lox 함수 단위 샘플링 프로파일러(--profile)
+// 함수를 부를 때마다 그림자 호출 스택에 함수를 쌓고, 별도 스레드가 일정 간격으로 그 스택을 읽어 센다
+// Java 스택은 모두 visitCallExpr, executeBlock으로 보이므로 Lox 함수 이름과 선언 줄로 바꿔 보여 준다
+// 끝나면 함수별 self/total 비율을 출력하고 flame graph 도구가 읽는 collapsed stack 파일을 쓴다
+final class Profiler {
+    // 꺼져 있으면 null, 호출 경로에서는 이 필드의 null 검사만 한다
+    static Profiler current = null;
+
+    private static final long INTERVAL_MILLIS = 1;
+    private static final String ROOT = "<script>";
+    private static final int REPORT_LINES = 20;
+
+    // 실행 스레드만 쓰고 샘플링 스레드는 읽기만 한다
+    // 읽는 도중 스택이 바뀔 수 있지만 샘플 하나가 조금 어긋나는 정도라 잠그지 않는다
+    // Stmt.Function(트리, 노드, JIT) 또는 VM.ObjFunction(--vm)
+    private Object[] frames = new Object[64];
+    private volatile int depth = 0;
+
+    private final Path output;
+    private final Thread sampler;
+    private volatile boolean running = true;
+    // 샘플링 스레드만 쓴다, stop에서 스레드가 끝난 뒤에 읽는다
+    private final Map<String, Long> stacks = new HashMap<>();
+    private final Map<Object, String> labels = new IdentityHashMap<>();
+    private long samples = 0;
+
+    private Profiler(Path output) {
+        this.output = output;
+        this.sampler = new Thread(this::sampleLoop, "lox-profiler");
+        this.sampler.setDaemon(true);
+    }
+
+    static void start(Path output) {
+        current = new Profiler(output);
+        current.sampler.start();
+    }
+
+    void enter(Object function) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        frames[depth] = function;
+        depth = depth + 1;
+    }
+
+    // 꼬리 호출은 지금 프레임을 다음 함수로 바꾼다
+    void replace(Object function) {
+        frames[depth - 1] = function;
+    }
+
+    void exit() {
+        depth = depth - 1;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    // 에러로 프레임을 한꺼번에 버린 VM이 깊이를 되돌린다
+    void unwind(int depth) {
+        this.depth = depth;
+    }
+
+    private void sampleLoop() {
+        while (running) {
+            try {
+                Thread.sleep(INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sample();
+        }
+    }
+
+    private void sample() {
+        Object[] snapshot = frames;
+        int size = Math.min(depth, snapshot.length);
+        StringBuilder stack = new StringBuilder(ROOT);
+        for (int i = 0; i < size; i++) {
+            String label = label(snapshot[i]);
+            if (label != null) stack.append(';').append(label);
+        }
+        stacks.merge(stack.toString(), 1L, Long::sum);
+        samples++;
+    }
+
+    // 함수 이름:선언 줄, VM의 최상위 스크립트 프레임은 ROOT와 겹치므로 null
+    private String label(Object function) {
+        if (function == null) return null;
+        String label = labels.get(function);
+        if (label != null) return label;
+
+        if (function instanceof Stmt.Function) {
+            Token name = ((Stmt.Function) function).name;
+            label = name.lexeme + ":" + name.line;
+        } else {
+            VM.ObjFunction vmFunction = (VM.ObjFunction) function;
+            if (vmFunction.name == null) return null;
+            label = vmFunction.name + ":" + vmFunction.line;
+        }
+        labels.put(function, label);
+        return label;
+    }
+
+    // 샘플링을 멈추고 결과를 출력한다
+    void stop(PrintStream out) {
+        running = false;
+        sampler.interrupt();
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        current = null;
+
+        writeCollapsed();
+        report(out);
+    }
+
+    // flame graph 도구의 입력 형식, 한 줄에 "바깥;...;안쪽 샘플수"
+    private void writeCollapsed() {
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write profile to " + output + ": " + e.getMessage());
+        }
+    }
+
+    // self는 스택 맨 위에 있던 샘플, total은 스택 어디에든 있던 샘플(재귀는 한 번만 센다)
+    private void report(PrintStream out) {
+        Map<String, Long> self = new HashMap<>();
+        Map<String, Long> total = new HashMap<>();
+        for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+            String[] stack = entry.getKey().split(";");
+            long count = entry.getValue();
+            self.merge(stack[stack.length - 1], count, Long::sum);
+            Set<String> seen = new HashSet<>();
+            for (String frame : stack) {
+                if (seen.add(frame)) total.merge(frame, count, Long::sum);
+            }
+        }
+
+        List<String> functions = new ArrayList<>(total.keySet());
+        functions.sort((a, b) -> {
+            int bySelf = Long.compare(self.getOrDefault(b, 0L), self.getOrDefault(a, 0L));
+            return bySelf != 0 ? bySelf : Long.compare(total.get(b), total.get(a));
+        });
+
+        out.println("profile: " + samples + " samples every " + INTERVAL_MILLIS + " ms, stacks in " + output);
+        out.println(String.format("%8s %8s  %s", "self", "total", "function"));
+        for (int i = 0; i < functions.size() && i < REPORT_LINES; i++) {
+            String function = functions.get(i);
+            out.println(String.format("%7.1f%% %7.1f%%  %s",
+                    percent(self.getOrDefault(function, 0L)), percent(total.get(function)), function));
+        }
+    }
+
+    private double percent(long count) {
+        return samples == 0 ? 0 : 100.0 * count / samples;
+    }
+}
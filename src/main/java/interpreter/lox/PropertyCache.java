@@ -0,0 +1,92 @@
+package interpreter.lox;
+
+// Expr.Get, Expr.Set마다 붙는 inline cache
+// Shape별로 찾은 결과(필드 slot, 메서드, 필드 추가 후 Shape)를 기억해 두고 다음부터는 비교만 한다
+// 서로 다른 Shape가 ENTRIES개를 넘게 나오면 megamorphic으로 보고 더 기록하지 않는다
+final class PropertyCache {
+    private static final int ENTRIES = 4;
+
+    private final Shape[] shapes = new Shape[ENTRIES];
+    private final int[] slots = new int[ENTRIES];
+    // get이면 slot이 -1일 때의 메서드, set이면 필드를 추가할 때의 다음 Shape
+    private final Object[] targets = new Object[ENTRIES];
+    private int count;
+
+    Object get(LoxInstance instance, Token name) {
+        Shape shape = instance.shape;
+        for (int i = 0; i < count; i++) {
+            if (shapes[i] == shape) {
+                if (slots[i] >= 0) return instance.fields[slots[i]];
+                return ((LoxFunction) targets[i]).bind(instance);
+            }
+        }
+
+        int slot = shape.slotOf(name.symbol);
+        if (slot >= 0) {
+            record(shape, slot, null);
+            return instance.fields[slot];
+        }
+
+        LoxFunction method = instance.klass.findMethod(name.symbol);
+        if (method == null) {
+            throw new RuntimeError(name, "Undefined Property '" + name.lexeme + "'.");
+        }
+        record(shape, -1, method);
+        return method.bind(instance);
+    }
+
+    // obj.name(...) 호출용, 이름이 메서드로 풀리면 bind하지 않은 메서드를 돌려준다
+    // 필드이거나 찾지 못하면 null이고, 호출한 쪽이 get으로 값을 꺼내거나 에러를 낸다
+    LoxFunction method(LoxInstance instance, Token name) {
+        Shape shape = instance.shape;
+        for (int i = 0; i < count; i++) {
+            if (shapes[i] == shape) {
+                if (slots[i] >= 0) return null;
+                return (LoxFunction) targets[i];
+            }
+        }
+
+        int slot = shape.slotOf(name.symbol);
+        if (slot >= 0) {
+            record(shape, slot, null);
+            return null;
+        }
+
+        LoxFunction method = instance.klass.findMethod(name.symbol);
+        if (method != null) record(shape, -1, method);
+        return method;
+    }
+
+    void set(LoxInstance instance, Token name, Object value) {
+        Shape shape = instance.shape;
+        for (int i = 0; i < count; i++) {
+            if (shapes[i] == shape) {
+                if (targets[i] == null) {
+                    instance.fields[slots[i]] = value;
+                } else {
+                    instance.addField((Shape) targets[i], value);
+                }
+                return;
+            }
+        }
+
+        int slot = shape.slotOf(name.symbol);
+        if (slot >= 0) {
+            record(shape, slot, null);
+            instance.fields[slot] = value;
+            return;
+        }
+
+        Shape next = shape.withField(name.symbol);
+        record(shape, next.size - 1, next);
+        instance.addField(next, value);
+    }
+
+    private void record(Shape shape, int slot, Object target) {
+        if (count == ENTRIES) return;
+        shapes[count] = shape;
+        slots[count] = slot;
+        targets[count] = target;
+        count++;
+    }
+}
@@ -1,5 +1,6 @@
 package interpreter.lox;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,12 +11,39 @@ import java.util.Stack;
 // Validator의 역할을 한다
 // Stack과 Map을 이용해 변수의 재사용을 감지한다
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
-    private final Interpreter interpreter;
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+    // 분석 중인 함수, 최상위 코드도 하나의 함수처럼 프레임을 갖는다
+    private FunctionScope function = new FunctionScope(null);
     private FunctionType currentFunction = FunctionType.NONE;
 
-    Resolver(Interpreter interpreter) {
-        this.interpreter = interpreter;
+    // 지역 변수의 프레임 슬롯과 정의 여부
+    private static class Local {
+        final int slot;
+        boolean defined = false;
+        // this나 매개변수, 호출될 때 프레임에 들어온다
+        boolean parameter = false;
+        // 안쪽 함수가 upvalue로 잡으면 true, 이 변수는 프레임 슬롯에 Cell로 둔다
+        boolean captured = false;
+        // 이 변수를 프레임에서 직접 선언하거나 읽고 쓰는 노드, 스코프가 끝날 때 captured면 boxed로 고친다
+        final List<Object> uses = new ArrayList<>();
+
+        Local(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    // 함수 하나의 스코프, 값 스택 프레임 크기와 잡은 변수 목록
+    private static class FunctionScope {
+        final FunctionScope enclosing;
+        final Stack<Map<Symbol, Local>> scopes = new Stack<>();
+        // 0 이상이면 감싸는 함수 프레임의 슬롯, 음수면 감싸는 함수의 upvalue(-1 - n)
+        final List<Integer> captures = new ArrayList<>();
+        // 다음에 쓸 슬롯과 지금까지 쓴 크기
+        int frameSlots = 0;
+        int frameSize = 0;
+
+        FunctionScope(FunctionScope enclosing) {
+            this.enclosing = enclosing;
+        }
     }
 
     private enum FunctionType {
@@ -39,6 +67,11 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         }
     }
 
+    // 최상위 코드의 블록이 쓰는 값 스택 프레임 크기
+    int frameSize() {
+        return function.frameSize;
+    }
+
     // Interpreter의 execute처럼 데이터를 다루는 메서드(visit)을 실행하는 대행자이다
     private void resolve(Stmt stmt) {
         stmt.accept(this);
@@ -48,53 +81,182 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         expr.accept(this);
     }
 
-    private void resolveFunction(Stmt.Function function, FunctionType type) {
+    private void resolveFunction(Stmt.Function declaration, FunctionType type) {
 
         FunctionType enclosingFunction = currentFunction;
         currentFunction = type;
+        function = new FunctionScope(function);
 
         beginScope();
-        for (Token param : function.params) {
-            declare(param);
+        // 메서드는 호출될 때 받는 this를 자기 프레임의 0번 슬롯에 둔다
+        if (type == FunctionType.METHOD || type == FunctionType.INITIALIZER) {
+            defineImplicit(Symbol.THIS).parameter = true;
+        }
+        for (Token param : declaration.params) {
+            declare(param).parameter = true;
             define(param);
         }
-        resolve(function.body);
+        resolve(declaration.body);
+
+        // 안쪽 함수가 잡은 this와 매개변수는 호출될 때 Cell로 감싼다
+        List<Integer> cells = new ArrayList<>();
+        for (Local local : function.scopes.peek().values()) {
+            if (local.parameter && local.captured) cells.add(local.slot);
+        }
         endScope();
+
+        declaration.frameSize = function.frameSize;
+        declaration.cells = toArray(cells);
+        declaration.captures = toArray(function.captures);
+
+        function = function.enclosing;
         currentFunction = enclosingFunction;
     }
 
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
     private void beginScope() {
-        scopes.push(new HashMap<String, Boolean>());
+        function.scopes.push(new HashMap<Symbol, Local>());
     }
 
+    // 스코프가 끝나면 그 슬롯은 다음 블록이 다시 쓴다
+    // 이 스코프의 변수를 쓰는 노드는 모두 안쪽에 있으므로 여기서 잡힌 변수를 boxed로 고칠 수 있다
     private void endScope() {
-        scopes.pop();
+        Map<Symbol, Local> scope = function.scopes.pop();
+        function.frameSlots -= scope.size();
+        for (Local local : scope.values()) {
+            if (!local.captured) continue;
+            for (Object use : local.uses) {
+                box(use);
+            }
+        }
+    }
+
+    private static void box(Object node) {
+        if (node instanceof Expr.Variable) {
+            ((Expr.Variable) node).boxed = true;
+        } else if (node instanceof Expr.Assign) {
+            ((Expr.Assign) node).boxed = true;
+        } else if (node instanceof Expr.This) {
+            ((Expr.This) node).boxed = true;
+        } else if (node instanceof Stmt.Var) {
+            ((Stmt.Var) node).boxed = true;
+        } else if (node instanceof Stmt.Function) {
+            ((Stmt.Function) node).boxed = true;
+        } else if (node instanceof Stmt.Class) {
+            ((Stmt.Class) node).boxed = true;
+        }
+    }
+
+    private Local allocate() {
+        Local local = new Local(function.frameSlots++);
+        function.frameSize = Math.max(function.frameSize, function.frameSlots);
+        return local;
     }
 
-    // 이름만 등록
-    private void declare(Token name) {
-        if (scopes.isEmpty()) return;
+    // 이름만 등록, 전역이면 null
+    private Local declare(Token name) {
+        if (function.scopes.isEmpty()) return null;
 
-        Map<String, Boolean> scope = scopes.peek();
-        if (scope.containsKey(name.lexeme)) {
+        Map<Symbol, Local> scope = function.scopes.peek();
+        if (scope.containsKey(name.symbol)) {
             Lox.error(name, "Already a variable with this name in this scope");
         }
-        scope.put(name.lexeme, false);
+        // 선언 순서가 곧 슬롯 번호가 된다
+        Local local = allocate();
+        scope.put(name.symbol, local);
+        return local;
     }
 
     // 사용 가능으로 변경
     private void define(Token name) {
-        if (scopes.isEmpty()) return;
-        scopes.peek().put(name.lexeme, true);
+        if (function.scopes.isEmpty()) return;
+        function.scopes.peek().get(name.symbol).defined = true;
+    }
+
+    // this, super처럼 스코프에 하나뿐인 암묵적 변수
+    private Local defineImplicit(Symbol name) {
+        Local local = allocate();
+        local.defined = true;
+        function.scopes.peek().put(name, local);
+        return local;
+    }
+
+    // 선언한 지역 변수의 슬롯을 선언 노드에 기록한다
+    private void declareLocal(Local local, Object node) {
+        if (local == null) return;
+        local.uses.add(node);
+        if (node instanceof Stmt.Var) {
+            ((Stmt.Var) node).slot = local.slot;
+        } else if (node instanceof Stmt.Function) {
+            ((Stmt.Function) node).slot = local.slot;
+        } else if (node instanceof Stmt.Class) {
+            ((Stmt.Class) node).slot = local.slot;
+        }
     }
 
-    private void resolveLocal(Expr expr, Token name) {
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme)) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
-                return;
-            }
+    // 찾은 위치는 AST 노드에 직접 기록한다(찾지 못하면 slot -1, 전역)
+    // 자기 함수의 지역 변수면 프레임 슬롯, 감싸는 함수의 지역 변수면 upvalue 번호
+    private void resolveLocal(Expr expr, Symbol name) {
+        int slot;
+        boolean upvalue = false;
+        Local local = find(function, name);
+        if (local != null) {
+            local.uses.add(expr);
+            slot = local.slot;
+        } else {
+            slot = resolveUpvalue(function, name);
+            if (slot == -1) return;
+            upvalue = true;
         }
+
+        if (expr instanceof Expr.Variable) {
+            ((Expr.Variable) expr).slot = slot;
+            ((Expr.Variable) expr).upvalue = upvalue;
+        } else if (expr instanceof Expr.Assign) {
+            ((Expr.Assign) expr).slot = slot;
+            ((Expr.Assign) expr).upvalue = upvalue;
+        } else if (expr instanceof Expr.This) {
+            ((Expr.This) expr).slot = slot;
+            ((Expr.This) expr).upvalue = upvalue;
+        }
+    }
+
+    private static Local find(FunctionScope function, Symbol name) {
+        for (int i = function.scopes.size() - 1; i >= 0; i--) {
+            Local local = function.scopes.get(i).get(name);
+            if (local != null) return local;
+        }
+        return null;
+    }
+
+    // 감싸는 함수들을 거슬러 올라가며 필요한 변수를 upvalue로 잡는다, 없으면 -1(전역)
+    private static int resolveUpvalue(FunctionScope function, Symbol name) {
+        if (function.enclosing == null) return -1;
+
+        Local local = find(function.enclosing, name);
+        if (local != null) {
+            local.captured = true;
+            return addCapture(function, local.slot);
+        }
+
+        int upvalue = resolveUpvalue(function.enclosing, name);
+        if (upvalue == -1) return -1;
+        return addCapture(function, -1 - upvalue);
+    }
+
+    private static int addCapture(FunctionScope function, int capture) {
+        int index = function.captures.indexOf(capture);
+        if (index != -1) return index;
+
+        function.captures.add(capture);
+        return function.captures.size() - 1;
     }
 
     @Override
@@ -111,10 +273,10 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         ClassType enclosingClass = currentClass;
         currentClass = ClassType.CLASS;
 
-        declare(stmt.name);
+        declareLocal(declare(stmt.name), stmt);
         define(stmt.name);
 
-        if(stmt.superclass != null && stmt.name.lexeme.equals(stmt.superclass.name.lexeme)) {
+        if(stmt.superclass != null && stmt.name.symbol == stmt.superclass.name.symbol) {
             Lox.error(stmt.superclass.name, "A class can't inherit from itself.");
         }
 
@@ -123,26 +285,27 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             resolve(stmt.superclass);
         }
 
+        // super는 메서드들을 감싸는 스코프의 변수, 메서드가 upvalue로 잡는다
+        Local superclass = null;
         if(stmt.superclass != null) {
             beginScope();
-            scopes.peek().put("super", true);
+            superclass = defineImplicit(Symbol.SUPER);
         }
 
-        //resolveFunction을 하기전에 스코프 한개를 더 만들어서 this 변수가 존재하는 환경을 만든다
-        beginScope();
-        scopes.peek().put("this", true);
-
+        // this는 resolveFunction이 메서드 스코프의 0번 슬롯에 정의한다
         for (Stmt.Function method : stmt.methods) {
             FunctionType declaration = FunctionType.METHOD;
-            if(method.name.lexeme.equals("init")) {
+            if(method.name.symbol == Symbol.INIT) {
                 declaration = FunctionType.INITIALIZER;
             }
             resolveFunction(method, declaration);
         }
 
-        endScope();
-
-        if(stmt.superclass != null) endScope();
+        if(superclass != null) {
+            stmt.superSlot = superclass.slot;
+            stmt.superBoxed = superclass.captured;
+            endScope();
+        }
 
         currentClass = enclosingClass;
         return null;
@@ -156,7 +319,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
-        declare(stmt.name);
+        declareLocal(declare(stmt.name), stmt);
         define(stmt.name);
 
         resolveFunction(stmt, FunctionType.FUNCTION);
@@ -190,6 +353,11 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             }
 
             resolve(stmt.value);
+
+            // return f(x);는 꼬리 호출, 호출한 함수의 프레임에서 이어서 실행한다
+            if (stmt.value instanceof Expr.Call && currentFunction != FunctionType.NONE) {
+                stmt.tail = true;
+            }
         }
 
         return null;
@@ -197,11 +365,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitVarStmt(Stmt.Var stmt) {
-        declare(stmt.name);
+        Local local = declare(stmt.name);
         if (stmt.initializer != null) {
             resolve(stmt.initializer);
         }
         define(stmt.name);
+        declareLocal(local, stmt);
         return null;
     }
 
@@ -215,7 +384,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitAssignExpr(Expr.Assign expr) {
         resolve(expr.value);
-        resolveLocal(expr, expr.name);
+        resolveLocal(expr, expr.name.symbol);
         return null;
     }
 
@@ -226,6 +395,13 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    // 최적화 패스가 Resolver 뒤에 만드는 노드라 원래 호출만 다시 분석한다
+    @Override
+    public Void visitInlineExpr(Expr.Inline expr) {
+        resolve(expr.call);
+        return null;
+    }
+
     @Override
     public Void visitCallExpr(Expr.Call expr) {
         resolve(expr.callee);
@@ -277,7 +453,11 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             Lox.error(expr.keyword, "Can't use 'super' in a class with no superclass.");
         }
 
-        resolveLocal(expr, expr.keyword);
+        // super로 찾을 상위 클래스와 찾은 메서드에 넘길 this
+        expr.superclass = new Expr.Variable(expr.keyword);
+        resolveLocal(expr.superclass, Symbol.SUPER);
+        expr.self = new Expr.This(expr.keyword);
+        resolveLocal(expr.self, Symbol.THIS);
         return null;
     }
 
@@ -290,7 +470,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
         }
 
-        resolveLocal(expr, expr.keyword);
+        resolveLocal(expr, expr.keyword.symbol);
         return null;
     }
 
@@ -303,11 +483,13 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitVariableExpr(Expr.Variable expr) {
         // 중복된 변수를 발견하면 에러를 throw
-        if (!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
+        Stack<Map<Symbol, Local>> scopes = function.scopes;
+        if (!scopes.isEmpty() && scopes.peek().containsKey(expr.name.symbol)
+                && !scopes.peek().get(expr.name.symbol).defined) {
             Lox.error(expr.name, "Can't read local variable in its own initializer");
         }
 
-        resolveLocal(expr, expr.name);
+        resolveLocal(expr, expr.name.symbol);
         return null;
     }
 }
@@ -0,0 +1,75 @@
+package interpreter.lox;
+
+import java.util.ArrayDeque;
+
+// + 로 이어 붙인 문자열, 양쪽을 가리키기만 하고 print나 비교에서 처음 필요할 때 한 번에 복사한다
+// 반복문에서 문자열을 쌓아도 매번 앞부분을 다시 복사하지 않으므로 전체 길이에 비례한다
+// Lox 문자열 값은 String이거나 Rope이고 둘 다 CharSequence로 검사한다
+final class Rope implements CharSequence {
+    // 이보다 짧은 결과는 노드를 만드는 것보다 바로 복사하는 편이 싸다
+    private static final int MIN_LENGTH = 64;
+
+    private CharSequence left;
+    private CharSequence right;
+    private final int length;
+    // 한 번 펼친 뒤에는 이것만 남기고 양쪽을 놓는다
+    private String flat;
+
+    private Rope(CharSequence left, CharSequence right, int length) {
+        this.left = left;
+        this.right = right;
+        this.length = length;
+    }
+
+    static CharSequence concat(CharSequence left, CharSequence right) {
+        int length = left.length() + right.length();
+        if (length < MIN_LENGTH) {
+            return left.toString() + right;
+        }
+        return new Rope(left, right, length);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (flat != null) return flat;
+
+        // 반복문에서 쌓은 rope는 왼쪽으로 한없이 깊으므로 재귀 대신 스택을 쓴다
+        // 오른쪽 조각부터 꺼내 배열의 끝에서부터 채운다
+        char[] chars = new char[length];
+        int end = length;
+        ArrayDeque<CharSequence> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            CharSequence part = pending.pop();
+            if (part instanceof Rope && ((Rope) part).flat == null) {
+                Rope rope = (Rope) part;
+                pending.push(rope.left);
+                pending.push(rope.right);
+                continue;
+            }
+            String text = part.toString();
+            end -= text.length();
+            text.getChars(0, text.length(), chars, end);
+        }
+
+        flat = new String(chars);
+        left = null;
+        right = null;
+        return flat;
+    }
+}
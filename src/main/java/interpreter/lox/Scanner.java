@@ -1,51 +1,47 @@
 package interpreter.lox;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import static interpreter.lox.TokenType.*;
 
 public class Scanner {
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
-    private static final Map<String, TokenType> keywords;
+    private final SourceBuffer source;
+    private final TokenBuffer tokens;
     private int start = 0;
     private int current = 0;
     private int line = 1;
 
-    static {
-        keywords = new HashMap<>();
-        keywords.put("and", AND);
-        keywords.put("class", CLASS);
-        keywords.put("else", ELSE);
-        keywords.put("false", FALSE);
-        keywords.put("for", FOR);
-        keywords.put("fun", FUN);
-        keywords.put("if", IF);
-        keywords.put("nil", NIL);
-        keywords.put("or", OR);
-        keywords.put("print", PRINT);
-        keywords.put("return", RETURN);
-        keywords.put("super", SUPER);
-        keywords.put("this", THIS);
-        keywords.put("true", TRUE);
-        keywords.put("var", VAR);
-        keywords.put("while", WHILE);
+    Scanner(String source) {
+        this(new SourceBuffer(source));
     }
 
-    Scanner(String source) {
+    Scanner(SourceBuffer source) {
         this.source = source;
+        this.tokens = new TokenBuffer(source, this);
+    }
+
+    // 미리 전부 읽지 않는다, Parser가 토큰을 찾을 때 TokenBuffer가 scanNext로 더 읽는다
+    TokenBuffer scanTokens() {
+        return tokens;
     }
 
-    List<Token> scanTokens() {
-        while(!isAtEnd()) {
+    // 토큰을 하나 붙이거나 끝이면 EOF를 붙인다, 공백과 주석만 있으면 토큰이 나올 때까지 읽는다
+    void scanNext() {
+        int size = tokens.size();
+        while (tokens.size() == size) {
+            if (isAtEnd()) {
+                tokens.add(EOF, current, current, line);
+                return;
+            }
             start = current;
             scanToken();
         }
-        tokens.add(new Token(EOF, "", null, line));
-        return tokens;
+    }
+
+    // offset보다 앞의 글자는 더 쓰지 않는다, 실제로 버린 만큼 위치를 당긴다
+    int release(int offset) {
+        int dropped = source.discard(offset);
+        start -= dropped;
+        current -= dropped;
+        return dropped;
     }
 
     private void scanToken() {
@@ -103,10 +99,8 @@ public class Scanner {
     private void identifier() {
         while(isAlphaNumeric(peek())) advance();
 
-        String text = source.substring(start, current);
-        TokenType type = keywords.get(text);
-        if(type == null) type = IDENTIFIER;
-        addToken(type);
+        // 예약어도 Symbol 표에 있으므로 한 번 찾으면 타입까지 정해진다
+        tokens.add(Symbol.intern(source, start, current), start, current, line);
     }
 
     private void number() {
@@ -119,7 +113,8 @@ public class Scanner {
             while (isDigit(peek())) advance();
         }
 
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+        // 값은 Parser가 리터럴을 만들 때 읽는다
+        addToken(NUMBER);
     }
 
     private void string() {
@@ -136,9 +131,8 @@ public class Scanner {
         // 닫는 큰 따옴표
         advance();
 
-        // 앞뒤 큰따옴표 제거
-        String value = source.substring(start + 1, current - 1);
-        addToken(STRING, value);
+        // 앞뒤 큰따옴표는 TokenBuffer.literal에서 뗀다
+        addToken(STRING);
     }
 
     // 일치한다면 글자를 소비한다
@@ -155,7 +149,9 @@ public class Scanner {
     }
 
     private char peekNext() {
-        if(current + 1 >= source.length()) return '\0';
+        while(current + 1 >= source.length()) {
+            if(!source.fill()) return '\0';
+        }
         return source.charAt(current + 1);
     }
 
@@ -173,8 +169,9 @@ public class Scanner {
         return c >= '0' && c <= '9';
     }
 
+    // 창의 끝에 닿으면 채널에서 더 읽어 본다
     private boolean isAtEnd() {
-        return current >= source.length();
+        return current >= source.length() && !source.fill();
     }
 
     // 글자를 소비한다
@@ -183,11 +180,6 @@ public class Scanner {
     }
 
     private void addToken(TokenType type) {
-        addToken(type, null);
-    }
-
-    private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        tokens.add(type, start, current, line);
     }
 }
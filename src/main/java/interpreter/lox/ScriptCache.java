@@ -0,0 +1,205 @@
+package interpreter.lox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// resolve까지 끝난 스크립트를 캐시 디렉터리에 저장해 두고, 다음 실행에서는 Scanner, Parser, Resolver를 건너뛴다(--cache)
+// 파일 이름은 소스 내용의 SHA-256이라 소스가 바뀌면 다른 파일을 찾으므로 따로 무효화할 필요가 없다
+// 최적화는 옵션에 따라 달라지므로 최적화하기 전의 AST를 저장한다
+// 헤더: MAGIC, FORMAT, 인터프리터 버전(32바이트), frameSize, AST 길이, AST의 CRC32
+// 캐시한 AST는 그대로 실행되므로 다른 사용자가 넣어 둘 수 있는 디렉터리나 파일은 캐시가 없는 것으로 본다
+final class ScriptCache {
+    private static final int MAGIC = 0x4c4f5843;
+    // 헤더 배치가 바뀌면 올린다
+    private static final int FORMAT = 2;
+    private static final int HEADER = 4 + 4 + 32 + 4 + 4 + 4;
+    // 저장한 AST의 모양과 resolve 결과를 정하는 클래스들, 이 중 하나라도 바뀌면 버전이 달라진다
+    // 손으로 올리는 번호 대신 클래스 파일 내용을 해시하므로 필드나 slot 규칙을 바꾸고 잊어도 옛 캐시를 읽지 않는다
+    private static final Class<?>[] VERSIONED = {
+            Scanner.class, Parser.class, Resolver.class, AstWriter.class, AstReader.class,
+            Stmt.class, Expr.class, Token.class, TokenType.class
+    };
+    private static byte[] version = null;
+
+    private static UserPrincipal user = null;
+
+    private final Path directory;
+
+    ScriptCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // --cache에 디렉터리를 주지 않으면 사용자마다 따로 쓰는 $XDG_CACHE_HOME/lox, 없으면 ~/.cache/lox
+    // XDG 규칙대로 상대 경로인 $XDG_CACHE_HOME은 무시한다
+    static Path defaultDirectory() {
+        String home = System.getenv("XDG_CACHE_HOME");
+        if (home != null && !home.isEmpty() && Paths.get(home).isAbsolute()) return Paths.get(home, "lox");
+        return Paths.get(System.getProperty("user.home"), ".cache", "lox");
+    }
+
+    static final class Entry {
+        final List<Stmt> statements;
+        final int frameSize;
+
+        Entry(List<Stmt> statements, int frameSize) {
+            this.statements = statements;
+            this.frameSize = frameSize;
+        }
+    }
+
+    // 소스 바이트의 SHA-256, position은 건드리지 않는다
+    static String key(ByteBuffer source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source.duplicate());
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 위 클래스들(안쪽 클래스 포함)의 클래스 파일 SHA-256, 처음 쓸 때 한 번만 계산한다
+    static byte[] version() {
+        if (version != null) return version;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Class<?> type : VERSIONED) {
+                digestClass(digest, type);
+            }
+            version = digest.digest();
+            return version;
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void digestClass(MessageDigest digest, Class<?> type) throws IOException {
+        String name = type.getName();
+        try (InputStream in = type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            if (in == null) throw new IOException("Missing class file for " + name);
+            digest.update(in.readAllBytes());
+        }
+        Class<?>[] nested = type.getDeclaredClasses();
+        Arrays.sort(nested, Comparator.comparing(Class::getName));
+        for (Class<?> inner : nested) {
+            digestClass(digest, inner);
+        }
+    }
+
+    private static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes.duplicate());
+        return (int) crc.getValue();
+    }
+
+    // 없거나, 형식이나 인터프리터 버전이 다르거나, 길이나 CRC32가 맞지 않는 캐시는 null, 처음부터 다시 읽게 한다
+    // 디렉터리나 파일을 지금 사용자가 갖고 있지 않거나 그룹, 다른 사용자가 쓸 수 있어도 null
+    Entry load(String key) {
+        Path path = path(key);
+        if (!trusted(directory, true) || !trusted(path, false)) return null;
+        try (FileChannel channel = FileChannel.open(path, LinkOption.NOFOLLOW_LINKS)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < HEADER || in.getInt() != MAGIC || in.getInt() != FORMAT) return null;
+            byte[] fileVersion = new byte[32];
+            in.get(fileVersion);
+            if (!Arrays.equals(fileVersion, version())) return null;
+            int frameSize = in.getInt();
+            int length = in.getInt();
+            int crc = in.getInt();
+            if (length != in.remaining() || crc != checksum(in)) return null;
+            List<Stmt> statements = new AstReader(in).read();
+            if (in.hasRemaining()) return null;
+            return new Entry(statements, frameSize);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // 같은 스크립트를 동시에 실행해도 반쯤 쓴 파일을 읽지 않도록 임시 파일에 쓰고 옮긴다
+    // 캐시는 없어도 실행에는 상관없으므로 쓰지 못하면 그냥 넘어간다
+    void store(String key, List<Stmt> statements, int frameSize) {
+        byte[] ast = new AstWriter().write(statements);
+        ByteBuffer out = ByteBuffer.allocate(HEADER + ast.length);
+        out.putInt(MAGIC).putInt(FORMAT).put(version()).putInt(frameSize)
+                .putInt(ast.length).putInt(checksum(ByteBuffer.wrap(ast))).put(ast);
+        Path temp = null;
+        try {
+            if (!createDirectory()) return;
+            temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, out.array());
+            Files.move(temp, path(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // 캐시 없이 계속 실행한다
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // 없으면 지금 사용자만 읽고 쓸 수 있게(0700) 만든다, 이미 있는 디렉터리는 믿을 수 있을 때만 쓴다
+    // createTempFile이 만드는 파일은 POSIX에서 0600이다
+    private boolean createDirectory() throws IOException {
+        if (Files.notExists(directory)) {
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        return trusted(directory, true);
+    }
+
+    // 지금 사용자가 갖고 있고 그룹, 다른 사용자가 쓸 수 없어야 믿는다, POSIX 권한이 없는 파일 시스템은 소유자만 본다
+    // 디렉터리는 사용자가 직접 건 심볼릭 링크일 수 있어 링크가 가리키는 곳을, 캐시 파일은 링크 자체를 본다
+    private static boolean trusted(Path path, boolean follow) {
+        LinkOption[] options = follow ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+        try {
+            if (!Files.getOwner(path, options).equals(user())) return false;
+            PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class, options);
+            if (view == null) return true;
+            Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+            return !permissions.contains(PosixFilePermission.GROUP_WRITE)
+                    && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static UserPrincipal user() throws IOException {
+        if (user == null) {
+            user = FileSystems.getDefault().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+        }
+        return user;
+    }
+
+    private Path path(String key) {
+        return directory.resolve(key + ".loxc");
+    }
+}
@@ -0,0 +1,41 @@
+package interpreter.lox;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 인스턴스 필드 배치(필드 이름 -> slot)를 나타내는 hidden class
+// 클래스마다 빈 Shape에서 시작하고, 같은 순서로 필드를 추가한 인스턴스는 같은 Shape를 공유한다
+// 그래서 Shape가 같으면 클래스와 필드 배치가 모두 같다
+final class Shape {
+    private final Map<Symbol, Integer> slots;
+    private final Map<Symbol, Shape> transitions = new HashMap<>();
+    final int size;
+
+    Shape() {
+        this.slots = new HashMap<>();
+        this.size = 0;
+    }
+
+    private Shape(Shape parent, Symbol name) {
+        this.slots = new HashMap<>(parent.slots);
+        this.slots.put(name, parent.size);
+        this.size = parent.size + 1;
+    }
+
+    // 없으면 -1
+    int slotOf(Symbol name) {
+        Integer slot = slots.get(name);
+        if (slot == null) return -1;
+        return slot;
+    }
+
+    // 필드 하나를 추가한 다음 Shape, 새 필드의 slot은 size - 1
+    Shape withField(Symbol name) {
+        Shape next = transitions.get(name);
+        if (next == null) {
+            next = new Shape(this, name);
+            transitions.put(name, next);
+        }
+        return next;
+    }
+}
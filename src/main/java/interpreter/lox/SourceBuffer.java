@@ -0,0 +1,84 @@
+package interpreter.lox;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+// Scanner가 읽는 글자 창, 파일은 채널에서 필요한 만큼만 읽어 붙이고 다 쓴 앞부분은 버린다
+// 문자열로 만들면 전부 들어 있으므로 더 읽거나 버리지 않는다
+final class SourceBuffer implements CharSequence {
+    private static final int CHUNK = 8192;
+
+    // null이면 더 읽을 것이 없다
+    private Reader reader;
+    private char[] chars;
+    private int length;
+
+    SourceBuffer(String source) {
+        this.chars = source.toCharArray();
+        this.length = chars.length;
+    }
+
+    SourceBuffer(Reader reader) {
+        this.reader = reader;
+        this.chars = new char[CHUNK];
+    }
+
+    // 글자를 더 읽어 붙인다, 끝이면 false
+    boolean fill() {
+        if (reader == null) return false;
+        if (chars.length - length < CHUNK) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + CHUNK));
+        }
+        try {
+            int read = reader.read(chars, length, chars.length - length);
+            if (read < 0) {
+                reader.close();
+                reader = null;
+                return false;
+            }
+            length += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 앞의 count 글자를 버리고 나머지를 당긴다, 실제로 버린 글자 수를 돌려준다
+    // 매번 당기면 남은 글자를 계속 복사하므로 창의 절반 이상 쌓였을 때만 버린다
+    int discard(int count) {
+        if (reader == null || count < chars.length / 2) return 0;
+        System.arraycopy(chars, count, chars, 0, length - count);
+        length -= count;
+        return count;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    @Override
+    public String subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    boolean regionMatches(int start, String text) {
+        if (start + text.length() > length) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (chars[start + i] != text.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+}
@@ -42,6 +42,10 @@ abstract class Stmt {
     final Token name;
     final Expr.Variable superclass;
     final List<Stmt.Function> methods;
+    int slot = -1;
+    boolean boxed;
+    int superSlot = -1;
+    boolean superBoxed;
   }
   static class Expression extends Stmt {
    Expression(Expr expression) {
@@ -70,6 +74,11 @@ abstract class Stmt {
     final Token name;
     final List<Token> params;
     final List<Stmt> body;
+    int frameSize;
+    int[] cells;
+    int[] captures;
+    int slot = -1;
+    boolean boxed;
   }
   static class If extends Stmt {
    If(Expr condition, Stmt thenBranch, Stmt elseBranch) {
@@ -112,6 +121,7 @@ abstract class Stmt {
 
     final Token keyword;
     final Expr value;
+    boolean tail;
   }
   static class Var extends Stmt {
    Var(Token name, Expr initializer) {
@@ -126,6 +136,8 @@ abstract class Stmt {
 
     final Token name;
     final Expr initializer;
+    int slot = -1;
+    boolean boxed;
   }
   static class While extends Stmt {
    While(Expr condition, Stmt body) {
@@ -142,5 +154,7 @@ abstract class Stmt {
     final Stmt body;
   }
 
+  int line = -1;
+
    abstract <R> R accept(Visitor<R> visitor);
 }
@@ -0,0 +1,296 @@
+package interpreter.lox;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// NodeCompiler가 Stmt마다 만들어 두는 실행 노드
+// Interpreter처럼 실행 결과를 Completion으로 돌려주고, 반환 값과 꼬리 호출은 ValueStack에 담아 NodeFunction.run이 꺼낸다
+abstract class StmtNode {
+
+    abstract Completion execute();
+
+    static Completion executeAll(StmtNode[] statements) {
+        for (StmtNode statement : statements) {
+            if (statement.execute() == Completion.RETURN) return Completion.RETURN;
+        }
+        return Completion.NORMAL;
+    }
+
+    // 선언한 값을 전역(slot -1), 프레임 슬롯, 미리 만든 Cell 중 하나에 넣는다, Interpreter.define과 같다
+    static void define(ValueStack stack, Environment globals, int slot, Cell cell, Token name, Object value) {
+        if (cell != null) {
+            cell.value = value;
+        } else if (slot != -1) {
+            stack.values[stack.fp + slot] = value;
+        } else {
+            globals.define(name.symbol, value);
+        }
+    }
+
+    // 블록의 변수는 함수 프레임에 있으므로 환경을 만들지 않는다
+    static class Block extends StmtNode {
+        Block(StmtNode[] statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        Completion execute() {
+            return executeAll(statements);
+        }
+
+        final StmtNode[] statements;
+    }
+
+    static class Class extends StmtNode {
+        Class(ValueStack stack, Environment globals, Stmt.Class declaration, ExprNode superclass,
+              Method[] methods) {
+            this.stack = stack;
+            this.globals = globals;
+            this.declaration = declaration;
+            this.superclass = superclass;
+            this.methods = methods;
+        }
+
+        @Override
+        Completion execute() {
+            Object parent = null;
+            if (superclass != null) {
+                parent = superclass.evaluate();
+                if (!(parent instanceof LoxClass)) {
+                    throw new RuntimeError(declaration.superclass.name, "Superclass must be a class");
+                }
+            }
+
+            Cell cell = declaration.boxed ? stack.cell(declaration.slot) : null;
+            if (declaration.superBoxed) stack.cell(declaration.superSlot).value = parent;
+
+            Map<Symbol, LoxFunction> functions = new HashMap<>();
+            for (Method method : methods) {
+                Symbol methodName = method.declaration.name.symbol;
+                functions.put(methodName, new NodeFunction(method.declaration, method.body,
+                        stack, stack.capture(method.declaration.captures), methodName == Symbol.INIT));
+            }
+
+            String name = declaration.name.lexeme;
+            define(stack, globals, declaration.slot, cell, declaration.name,
+                    new LoxClass(name, (LoxClass) parent, functions));
+            return Completion.NORMAL;
+        }
+
+        final ValueStack stack;
+        final Environment globals;
+        final Stmt.Class declaration;
+        final ExprNode superclass;
+        final Method[] methods;
+    }
+
+    // 메서드 선언과 미리 컴파일해 둔 본문
+    static class Method {
+        Method(Stmt.Function declaration, StmtNode[] body) {
+            this.declaration = declaration;
+            this.body = body;
+        }
+
+        final Stmt.Function declaration;
+        final StmtNode[] body;
+    }
+
+    static class Expression extends StmtNode {
+        Expression(ExprNode expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        Completion execute() {
+            expression.evaluate();
+            return Completion.NORMAL;
+        }
+
+        final ExprNode expression;
+    }
+
+    static class Function extends StmtNode {
+        Function(ValueStack stack, Environment globals, Stmt.Function declaration, StmtNode[] body) {
+            this.stack = stack;
+            this.globals = globals;
+            this.declaration = declaration;
+            this.body = body;
+        }
+
+        @Override
+        Completion execute() {
+            Cell cell = declaration.boxed ? stack.cell(declaration.slot) : null;
+            define(stack, globals, declaration.slot, cell, declaration.name,
+                    new NodeFunction(declaration, body, stack, stack.capture(declaration.captures), false));
+            return Completion.NORMAL;
+        }
+
+        final ValueStack stack;
+        final Environment globals;
+        final Stmt.Function declaration;
+        final StmtNode[] body;
+    }
+
+    static class If extends StmtNode {
+        If(ExprNode condition, StmtNode thenBranch, StmtNode elseBranch) {
+            this.condition = condition;
+            this.thenBranch = thenBranch;
+            this.elseBranch = elseBranch;
+        }
+
+        @Override
+        Completion execute() {
+            if (condition.evaluateCondition()) {
+                return thenBranch.execute();
+            } else if (elseBranch != null) {
+                return elseBranch.execute();
+            }
+            return Completion.NORMAL;
+        }
+
+        final ExprNode condition;
+        final StmtNode thenBranch;
+        final StmtNode elseBranch;
+    }
+
+    static class Print extends StmtNode {
+        Print(ExprNode expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        Completion execute() {
+            System.out.println(Interpreter.stringify(expression.evaluate()));
+            return Completion.NORMAL;
+        }
+
+        final ExprNode expression;
+    }
+
+    static class Return extends StmtNode {
+        Return(ValueStack stack, ExprNode value) {
+            this.stack = stack;
+            this.value = value;
+        }
+
+        @Override
+        Completion execute() {
+            Object result = null;
+            if (value != null) result = value.evaluate();
+
+            stack.returnValue = result;
+            return Completion.RETURN;
+        }
+
+        final ValueStack stack;
+        final ExprNode value;
+    }
+
+    // return f(x);, 호출 대상과 인자까지만 평가하고 실제 호출은 NodeFunction.run에 맡긴다
+    static class TailReturn extends StmtNode {
+        TailReturn(ValueStack stack, ExprNode.Calling call) {
+            this.stack = stack;
+            this.call = call;
+        }
+
+        @Override
+        Completion execute() {
+            stack.tailCall = call.tailCall();
+            return Completion.RETURN;
+        }
+
+        final ValueStack stack;
+        final ExprNode.Calling call;
+    }
+
+    static class Var extends StmtNode {
+        Var(Environment globals, Token name, ExprNode initializer) {
+            this.globals = globals;
+            this.name = name;
+            this.initializer = initializer;
+        }
+
+        @Override
+        Completion execute() {
+            Object value = null;
+            if (initializer != null) {
+                value = initializer.evaluate();
+            }
+
+            globals.define(name.symbol, value);
+            return Completion.NORMAL;
+        }
+
+        final Environment globals;
+        final Token name;
+        final ExprNode initializer;
+    }
+
+    // 값 스택 프레임에 두는 지역 변수, 안쪽 함수가 잡으면 선언할 때마다 새 Cell에 담는다
+    static class FrameVar extends StmtNode {
+        FrameVar(ValueStack stack, int slot, boolean boxed, ExprNode initializer) {
+            this.stack = stack;
+            this.slot = slot;
+            this.boxed = boxed;
+            this.initializer = initializer;
+        }
+
+        @Override
+        Completion execute() {
+            Object value = null;
+            if (initializer != null) {
+                value = initializer.evaluate();
+            }
+
+            stack.values[stack.fp + slot] = boxed ? new Cell(value) : value;
+            return Completion.NORMAL;
+        }
+
+        final ValueStack stack;
+        final int slot;
+        final boolean boxed;
+        final ExprNode initializer;
+    }
+
+    static class While extends StmtNode {
+        While(ExprNode condition, StmtNode body) {
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override
+        Completion execute() {
+            while (condition.evaluateCondition()) {
+                if (body.execute() == Completion.RETURN) return Completion.RETURN;
+            }
+            return Completion.NORMAL;
+        }
+
+        final ExprNode condition;
+        final StmtNode body;
+    }
+
+    // --hot-lines에서 문장 노드를 감싸 실행 횟수와 self 시간을 줄별로 센다
+    static class Counted extends StmtNode {
+        Counted(LineCounts counts, int line, StmtNode statement) {
+            this.counts = counts;
+            this.line = line;
+            this.statement = statement;
+        }
+
+        @Override
+        Completion execute() {
+            long outer = counts.enter();
+            long start = System.nanoTime();
+            try {
+                return statement.execute();
+            } finally {
+                counts.exit(line, outer, System.nanoTime() - start);
+            }
+        }
+
+        final LineCounts counts;
+        final int line;
+        final StmtNode statement;
+    }
+}
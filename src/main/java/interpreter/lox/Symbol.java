@@ -0,0 +1,126 @@
+package interpreter.lox;
+
+// 식별자 이름을 한 번만 저장하고 0부터 차례로 번호(id)를 붙인 것
+// 같은 이름은 항상 같은 Symbol이므로 실행 중의 표들은 문자열 대신 Symbol의 동일성이나 id로 찾는다
+// 예약어도 같은 표에 넣어 Scanner가 이름 하나에 한 번만 찾는다
+final class Symbol {
+    // 열린 주소법 해시 표, 크기는 2의 거듭제곱이고 절반 넘게 차면 늘린다
+    private static Symbol[] table = new Symbol[256];
+    private static int count = 0;
+
+    static {
+        keyword("and", TokenType.AND);
+        keyword("class", TokenType.CLASS);
+        keyword("else", TokenType.ELSE);
+        keyword("false", TokenType.FALSE);
+        keyword("for", TokenType.FOR);
+        keyword("fun", TokenType.FUN);
+        keyword("if", TokenType.IF);
+        keyword("nil", TokenType.NIL);
+        keyword("or", TokenType.OR);
+        keyword("print", TokenType.PRINT);
+        keyword("return", TokenType.RETURN);
+        keyword("super", TokenType.SUPER);
+        keyword("this", TokenType.THIS);
+        keyword("true", TokenType.TRUE);
+        keyword("var", TokenType.VAR);
+        keyword("while", TokenType.WHILE);
+    }
+
+    static final Symbol THIS = intern("this");
+    static final Symbol SUPER = intern("super");
+    static final Symbol INIT = intern("init");
+
+    final String name;
+    final int id;
+    // 예약어면 그 토큰 타입, 아니면 IDENTIFIER
+    final TokenType type;
+    private final int hash;
+
+    private Symbol(String name, int id, TokenType type, int hash) {
+        this.name = name;
+        this.id = id;
+        this.type = type;
+        this.hash = hash;
+    }
+
+    // 지금까지 만든 Symbol 수, id는 항상 이보다 작다
+    static int count() {
+        return count;
+    }
+
+    static Symbol intern(String name) {
+        return intern(name, 0, name.length(), TokenType.IDENTIFIER);
+    }
+
+    // 이미 있는 이름이면 source를 잘라 내지 않고 기존 Symbol을 돌려준다
+    static Symbol intern(SourceBuffer source, int start, int end) {
+        return intern(source, start, end, TokenType.IDENTIFIER);
+    }
+
+    private static void keyword(String name, TokenType type) {
+        intern(name, 0, name.length(), type);
+    }
+
+    private static Symbol intern(CharSequence source, int start, int end, TokenType type) {
+        int hash = hash(source, start, end);
+        int length = end - start;
+        int mask = table.length - 1;
+        int index = hash & mask;
+        Symbol symbol;
+        while ((symbol = table[index]) != null) {
+            if (symbol.hash == hash && matches(symbol.name, source, start, length)) {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return add(index, new Symbol(source.subSequence(start, end).toString(), count, type, hash));
+    }
+
+    private static boolean matches(String name, CharSequence source, int start, int length) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private static Symbol add(int index, Symbol symbol) {
+        table[index] = symbol;
+        count++;
+        if (count * 2 > table.length) {
+            Symbol[] old = table;
+            table = new Symbol[old.length * 2];
+            int mask = table.length - 1;
+            for (Symbol entry : old) {
+                if (entry == null) continue;
+                int i = entry.hash & mask;
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = entry;
+            }
+        }
+        return symbol;
+    }
+
+    // String.hashCode와 같은 식을 잘라 내지 않은 구간에 적용한다
+    private static int hash(CharSequence source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
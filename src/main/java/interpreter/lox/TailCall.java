@@ -0,0 +1,14 @@
+package interpreter.lox;
+
+// 꼬리 호출에서 아직 부르지 않은 호출 대상과 인자, LoxFunction.run(노드는 NodeFunction.run)이 이어서 실행한다
+final class TailCall {
+    final LoxCallable callee;
+    final LoxInstance receiver;
+    final Object[] arguments;
+
+    TailCall(LoxCallable callee, LoxInstance receiver, Object[] arguments) {
+        this.callee = callee;
+        this.receiver = receiver;
+        this.arguments = arguments;
+    }
+}
@@ -4,6 +4,8 @@ class Token {
     final TokenType type;
     final String lexeme;
     final Object literal;
+    // 식별자와 예약어의 이름, 나머지 토큰은 null
+    final Symbol symbol;
     // 에러 발생시 추적은 line을 통한 줄 번호까지만 구현한다
     final int line;
 
@@ -11,6 +13,15 @@ class Token {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
+        this.symbol = null;
+        this.line = line;
+    }
+
+    Token(Symbol symbol, int line) {
+        this.type = symbol.type;
+        this.lexeme = symbol.name;
+        this.literal = null;
+        this.symbol = symbol;
         this.line = line;
     }
 
@@ -0,0 +1,124 @@
+package interpreter.lox;
+
+import java.util.Arrays;
+
+// Scanner가 만든 토큰 열, 토큰마다 Token 객체를 만드는 대신 타입, 시작 위치, 길이, 줄을 나란한 배열에 담는다
+// 글자는 source에 그대로 두고, Token은 Parser가 AST에 넣거나 에러를 낼 때만 만든다
+// Parser가 아직 없는 토큰을 찾으면 그때 Scanner가 읽어 붙이고, 다 쓴 토큰은 discard로 버린다
+final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    // 구두점과 연산자는 글자가 정해져 있으므로 타입마다 한 번 잘라 낸 문자열을 다시 쓴다
+    private static final String[] LEXEMES = new String[TYPES.length];
+
+    private final SourceBuffer source;
+    private final Scanner scanner;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    // 식별자와 예약어만 채운다
+    private Symbol[] symbols;
+    private int count = 0;
+
+    TokenBuffer(SourceBuffer source, Scanner scanner) {
+        this.source = source;
+        this.scanner = scanner;
+        int capacity = 256;
+        types = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        symbols = new Symbol[capacity];
+    }
+
+    void add(TokenType type, int start, int end, int line) {
+        add(type, start, end, line, null);
+    }
+
+    void add(Symbol symbol, int start, int end, int line) {
+        add(symbol.type, start, end, line, symbol);
+    }
+
+    private void add(TokenType type, int start, int end, int line, Symbol symbol) {
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+        }
+        types[count] = (byte) type.ordinal();
+        starts[count] = start;
+        lengths[count] = end - start;
+        lines[count] = line;
+        symbols[count] = symbol;
+        count++;
+    }
+
+    int size() {
+        return count;
+    }
+
+    TokenType type(int index) {
+        while (index >= count) scanner.scanNext();
+        return TYPES[types[index]];
+    }
+
+    // 앞의 토큰 used개를 버리고, 남은 첫 토큰보다 앞의 글자도 Scanner에게 버리게 한다
+    void discard(int used) {
+        int remaining = count - used;
+        System.arraycopy(types, used, types, 0, remaining);
+        System.arraycopy(starts, used, starts, 0, remaining);
+        System.arraycopy(lengths, used, lengths, 0, remaining);
+        System.arraycopy(lines, used, lines, 0, remaining);
+        System.arraycopy(symbols, used, symbols, 0, remaining);
+        Arrays.fill(symbols, remaining, count, null);
+        count = remaining;
+
+        int dropped = scanner.release(starts[0]);
+        for (int i = 0; i < remaining; i++) {
+            starts[i] -= dropped;
+        }
+    }
+
+    // NUMBER는 Double, STRING은 따옴표를 뺀 내용, 나머지는 null
+    Object literal(int index) {
+        int start = starts[index];
+        int end = start + lengths[index];
+        switch (type(index)) {
+            case NUMBER:
+                return Double.parseDouble(source.subSequence(start, end));
+            case STRING:
+                return source.subSequence(start + 1, end - 1);
+            default:
+                return null;
+        }
+    }
+
+    Token token(int index) {
+        Symbol symbol = symbols[index];
+        if (symbol != null) return new Token(symbol, lines[index]);
+
+        TokenType type = type(index);
+        return new Token(type, lexeme(index), literal(index), lines[index]);
+    }
+
+    private String lexeme(int index) {
+        int start = starts[index];
+        int length = lengths[index];
+        TokenType type = type(index);
+        if (type == TokenType.NUMBER || type == TokenType.STRING) {
+            return source.subSequence(start, start + length);
+        }
+
+        // 같은 타입이어도 글자가 다를 수 있으므로('=='도 BANG_EQUAL이다) 맞을 때만 다시 쓴다
+        String cached = LEXEMES[type.ordinal()];
+        if (cached != null && cached.length() == length && source.regionMatches(start, cached)) {
+            return cached;
+        }
+        String lexeme = source.subSequence(start, start + length);
+        LEXEMES[type.ordinal()] = lexeme;
+        return lexeme;
+    }
+}
@@ -0,0 +1,12 @@
+package interpreter.lox;
+
+// 숫자를 기대한 평가(evaluateDouble)에서 다른 타입의 값이 나왔을 때 그 값을 돌려주는 용도
+// 에러 경로에서만 던져지므로 스택 트레이스를 만들지 않는다
+class UnexpectedValue extends RuntimeException {
+    final Object value;
+
+    UnexpectedValue(Object value) {
+        super(null, null, false, false);
+        this.value = value;
+    }
+}
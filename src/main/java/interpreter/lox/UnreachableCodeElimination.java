@@ -0,0 +1,25 @@
+package interpreter.lox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 같은 블록 안에서 return 뒤에 오는 문장은 실행되지 않으므로 지운다
+class UnreachableCodeElimination extends OptimizationPass {
+
+    @Override
+    String name() {
+        return "unreachable";
+    }
+
+    @Override
+    List<Stmt> rewriteAll(List<Stmt> statements) {
+        List<Stmt> result = super.rewriteAll(statements);
+        for (int i = 0; i < result.size() - 1; i++) {
+            if (result.get(i) instanceof Stmt.Return) {
+                rewrote();
+                return new ArrayList<>(result.subList(0, i + 1));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,693 @@
+package interpreter.lox;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static interpreter.lox.OpCode.*;
+
+// Compiler가 만든 바이트코드를 실행하는 스택 기반 VM
+// 트리 순회 Interpreter와 같은 스크립트를 같은 결과로 실행한다
+class VM {
+
+    private static final int FRAMES_MAX = 65536;
+    // 한 프레임이 쓸 수 있는 스택(지역 변수 256 + 임시 값)의 여유분
+    private static final int FRAME_HEADROOM = 512;
+    // 아직 정의되지 않은 전역 변수 표시
+    private static final Object UNDEFINED = new Object();
+
+    // 컴파일된 함수 원형
+    static class ObjFunction {
+        final String name;
+        // 선언한 줄, --profile에서 함수 이름과 함께 보여 준다
+        int line = 0;
+        final Chunk chunk = new Chunk();
+        int arity = 0;
+        int upvalueCount = 0;
+
+        ObjFunction(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name == null ? "<script>" : "<fn " + name + ">";
+        }
+    }
+
+    static class ObjClosure {
+        final ObjFunction function;
+        final ObjUpvalue[] upvalues;
+
+        ObjClosure(ObjFunction function) {
+            this.function = function;
+            this.upvalues = new ObjUpvalue[function.upvalueCount];
+        }
+
+        @Override
+        public String toString() {
+            return function.toString();
+        }
+    }
+
+    // 열려 있는 동안은 스택 슬롯을 가리키고, 닫히면 값을 직접 들고 있다
+    static class ObjUpvalue {
+        int slot;
+        Object closed;
+        boolean open = true;
+        ObjUpvalue next;
+
+        ObjUpvalue(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    static class ObjClass {
+        final String name;
+        final Map<String, ObjClosure> methods = new HashMap<>();
+        ObjClosure initializer;
+
+        ObjClass(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static class ObjInstance {
+        final ObjClass klass;
+        final Map<String, Object> fields = new HashMap<>();
+
+        ObjInstance(ObjClass klass) {
+            this.klass = klass;
+        }
+
+        @Override
+        public String toString() {
+            return klass.name + " instance";
+        }
+    }
+
+    static class ObjBoundMethod {
+        final Object receiver;
+        final ObjClosure method;
+
+        ObjBoundMethod(Object receiver, ObjClosure method) {
+            this.receiver = receiver;
+            this.method = method;
+        }
+
+        @Override
+        public String toString() {
+            return method.toString();
+        }
+    }
+
+    interface NativeFn {
+        Object call(Object[] args, int start);
+    }
+
+    static class ObjNative {
+        final int arity;
+        final NativeFn fn;
+
+        ObjNative(int arity, NativeFn fn) {
+            this.arity = arity;
+            this.fn = fn;
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn>";
+        }
+    }
+
+    private static class CallFrame {
+        ObjClosure closure;
+        int ip;
+        // 이 프레임의 0번 슬롯이 놓인 스택 위치
+        int base;
+    }
+
+    private Object[] stack = new Object[16 * 1024];
+    private int sp = 0;
+    private CallFrame[] frames = new CallFrame[64];
+    private int frameCount = 0;
+    private ObjUpvalue openUpvalues = null;
+
+    // 전역 변수는 이름 대신 컴파일 시점에 정한 번호로 찾는다
+    private final Map<String, Integer> globalIndex = new HashMap<>();
+    private String[] globalNames = new String[64];
+    private Object[] globalValues = new Object[64];
+
+    VM() {
+        defineNative("clock", 0, (args, start) -> (double) System.currentTimeMillis() / 1000.0);
+    }
+
+    private void defineNative(String name, int arity, NativeFn fn) {
+        globalValues[globalSlot(name)] = new ObjNative(arity, fn);
+    }
+
+    int globalSlot(String name) {
+        Integer index = globalIndex.get(name);
+        if (index != null) return index;
+
+        int slot = globalIndex.size();
+        if (slot == globalValues.length) {
+            globalNames = Arrays.copyOf(globalNames, slot * 2);
+            globalValues = Arrays.copyOf(globalValues, slot * 2);
+        }
+        globalNames[slot] = name;
+        globalValues[slot] = UNDEFINED;
+        globalIndex.put(name, slot);
+        return slot;
+    }
+
+    void interpret(List<Stmt> statements) {
+        ObjFunction script = new Compiler(this).compile(statements);
+        if (Lox.hadError) return;
+
+        int profileDepth = Profiler.current == null ? 0 : Profiler.current.depth();
+        try {
+            ObjClosure closure = new ObjClosure(script);
+            push(closure);
+            call(closure, 0);
+            run();
+        } catch (RuntimeError error) {
+            Lox.runtimeError(error);
+            resetStack();
+            if (Profiler.current != null) Profiler.current.unwind(profileDepth);
+        }
+    }
+
+    private void resetStack() {
+        Arrays.fill(stack, 0, sp, null);
+        sp = 0;
+        frameCount = 0;
+        openUpvalues = null;
+    }
+
+    private void run() {
+        CallFrame frame = frames[frameCount - 1];
+        byte[] code = frame.closure.function.chunk.code;
+        Object[] constants = frame.closure.function.chunk.constants;
+        int ip = frame.ip;
+        int base = frame.base;
+
+        for (;;) {
+            byte instruction = code[ip++];
+            switch (instruction) {
+                case CONSTANT: {
+                    push(constants[readShort(code, ip)]);
+                    ip += 2;
+                    break;
+                }
+                case NIL: push(null); break;
+                case TRUE: push(true); break;
+                case FALSE: push(false); break;
+                case POP: stack[--sp] = null; break;
+                case GET_LOCAL: {
+                    push(stack[base + (code[ip++] & 0xff)]);
+                    break;
+                }
+                case SET_LOCAL: {
+                    stack[base + (code[ip++] & 0xff)] = peek(0);
+                    break;
+                }
+                case GET_GLOBAL: {
+                    int slot = readShort(code, ip);
+                    ip += 2;
+                    Object value = globalValues[slot];
+                    if (value == UNDEFINED) {
+                        frame.ip = ip;
+                        throw error("Undefined variable '" + globalNames[slot] + "'.");
+                    }
+                    push(value);
+                    break;
+                }
+                case DEFINE_GLOBAL: {
+                    globalValues[readShort(code, ip)] = pop();
+                    ip += 2;
+                    break;
+                }
+                case SET_GLOBAL: {
+                    int slot = readShort(code, ip);
+                    ip += 2;
+                    if (globalValues[slot] == UNDEFINED) {
+                        frame.ip = ip;
+                        throw error("Undefined variable '" + globalNames[slot] + "'.");
+                    }
+                    globalValues[slot] = peek(0);
+                    break;
+                }
+                case GET_UPVALUE: {
+                    ObjUpvalue upvalue = frame.closure.upvalues[code[ip++] & 0xff];
+                    push(upvalue.open ? stack[upvalue.slot] : upvalue.closed);
+                    break;
+                }
+                case SET_UPVALUE: {
+                    ObjUpvalue upvalue = frame.closure.upvalues[code[ip++] & 0xff];
+                    if (upvalue.open) {
+                        stack[upvalue.slot] = peek(0);
+                    } else {
+                        upvalue.closed = peek(0);
+                    }
+                    break;
+                }
+                case GET_PROPERTY: {
+                    String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    frame.ip = ip;
+                    if (!(peek(0) instanceof ObjInstance)) {
+                        throw error("Only instances have properties");
+                    }
+
+                    ObjInstance instance = (ObjInstance) peek(0);
+                    Object value = instance.fields.get(name);
+                    if (value != null || instance.fields.containsKey(name)) {
+                        stack[sp - 1] = value;
+                        break;
+                    }
+
+                    ObjClosure method = instance.klass.methods.get(name);
+                    if (method == null) {
+                        throw error("Undefined Property '" + name + "'.");
+                    }
+                    stack[sp - 1] = new ObjBoundMethod(instance, method);
+                    break;
+                }
+                case SET_PROPERTY: {
+                    String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    if (!(peek(1) instanceof ObjInstance)) {
+                        frame.ip = ip;
+                        throw error("Only instances have fields.");
+                    }
+
+                    ObjInstance instance = (ObjInstance) peek(1);
+                    Object value = pop();
+                    instance.fields.put(name, value);
+                    stack[sp - 1] = value;
+                    break;
+                }
+                case GET_SUPER: {
+                    String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    ObjClass superclass = (ObjClass) pop();
+                    ObjClosure method = superclass.methods.get(name);
+                    if (method == null) {
+                        frame.ip = ip;
+                        throw error("Undefined property '" + name + "'.");
+                    }
+                    stack[sp - 1] = new ObjBoundMethod(peek(0), method);
+                    break;
+                }
+                case EQUAL: {
+                    Object b = pop();
+                    stack[sp - 1] = Interpreter.isEqual(peek(0), b);
+                    break;
+                }
+                case GREATER: {
+                    frame.ip = ip;
+                    checkNumberOperands();
+                    double b = (double) pop();
+                    stack[sp - 1] = (double) peek(0) > b;
+                    break;
+                }
+                case GREATER_EQUAL: {
+                    frame.ip = ip;
+                    checkNumberOperands();
+                    double b = (double) pop();
+                    stack[sp - 1] = (double) peek(0) >= b;
+                    break;
+                }
+                case LESS: {
+                    frame.ip = ip;
+                    checkNumberOperands();
+                    double b = (double) pop();
+                    stack[sp - 1] = (double) peek(0) < b;
+                    break;
+                }
+                case LESS_EQUAL: {
+                    frame.ip = ip;
+                    checkNumberOperands();
+                    double b = (double) pop();
+                    stack[sp - 1] = (double) peek(0) <= b;
+                    break;
+                }
+                case ADD: {
+                    Object b = peek(0);
+                    Object a = peek(1);
+                    Object result;
+                    if (a instanceof Double && b instanceof Double) {
+                        result = (double) a + (double) b;
+                    } else if (a instanceof CharSequence && b instanceof CharSequence) {
+                        result = Rope.concat((CharSequence) a, (CharSequence) b);
+                    } else if (a instanceof Double || b instanceof Double) {
+                        result = Rope.concat(Interpreter.text(a), Interpreter.text(b));
+                    } else {
+                        frame.ip = ip;
+                        throw error("Operand must be a number");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = result;
+                    break;
+                }
+                case SUBTRACT: {
+                    frame.ip = ip;
+                    checkNumberOperands();
+                    double b = (double) pop();
+                    stack[sp - 1] = (double) peek(0) - b;
+                    break;
+                }
+                case MULTIPLY: {
+                    frame.ip = ip;
+                    checkNumberOperands();
+                    double b = (double) pop();
+                    stack[sp - 1] = (double) peek(0) * b;
+                    break;
+                }
+                case DIVIDE: {
+                    frame.ip = ip;
+                    checkNumberOperands();
+                    double b = (double) pop();
+                    if (b == 0) throw error("0으로 나눌 수 없습니다.");
+                    stack[sp - 1] = (double) peek(0) / b;
+                    break;
+                }
+                case NOT: {
+                    stack[sp - 1] = !Interpreter.isTruthy(peek(0));
+                    break;
+                }
+                case NEGATE: {
+                    if (!(peek(0) instanceof Double)) {
+                        frame.ip = ip;
+                        throw error("Operand must be a number");
+                    }
+                    stack[sp - 1] = -(double) peek(0);
+                    break;
+                }
+                case PRINT: {
+                    System.out.println(Interpreter.stringify(pop()));
+                    break;
+                }
+                case JUMP: {
+                    ip += readShort(code, ip) + 2;
+                    break;
+                }
+                case JUMP_IF_FALSE: {
+                    int offset = readShort(code, ip);
+                    ip += 2;
+                    if (!Interpreter.isTruthy(peek(0))) ip += offset;
+                    break;
+                }
+                case JUMP_IF_TRUE: {
+                    int offset = readShort(code, ip);
+                    ip += 2;
+                    if (Interpreter.isTruthy(peek(0))) ip += offset;
+                    break;
+                }
+                case POP_JUMP_IF_FALSE: {
+                    int offset = readShort(code, ip);
+                    ip += 2;
+                    if (!Interpreter.isTruthy(pop())) ip += offset;
+                    break;
+                }
+                case LOOP: {
+                    int offset = readShort(code, ip);
+                    ip += 2;
+                    ip -= offset;
+                    break;
+                }
+                case CALL: {
+                    int argCount = code[ip++] & 0xff;
+                    frame.ip = ip;
+                    callValue(peek(argCount), argCount);
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    ip = frame.ip;
+                    base = frame.base;
+                    break;
+                }
+                case INVOKE: {
+                    String name = (String) constants[readShort(code, ip)];
+                    int argCount = code[ip + 2] & 0xff;
+                    ip += 3;
+                    frame.ip = ip;
+                    invoke(name, argCount);
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    ip = frame.ip;
+                    base = frame.base;
+                    break;
+                }
+                case SUPER_INVOKE: {
+                    String name = (String) constants[readShort(code, ip)];
+                    int argCount = code[ip + 2] & 0xff;
+                    ip += 3;
+                    frame.ip = ip;
+                    ObjClass superclass = (ObjClass) pop();
+                    invokeFromClass(superclass, name, argCount);
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    ip = frame.ip;
+                    base = frame.base;
+                    break;
+                }
+                case CLOSURE: {
+                    ObjFunction function = (ObjFunction) constants[readShort(code, ip)];
+                    ip += 2;
+                    ObjClosure closure = new ObjClosure(function);
+                    push(closure);
+                    for (int i = 0; i < closure.upvalues.length; i++) {
+                        boolean isLocal = code[ip++] == 1;
+                        int index = code[ip++] & 0xff;
+                        if (isLocal) {
+                            closure.upvalues[i] = captureUpvalue(base + index);
+                        } else {
+                            closure.upvalues[i] = frame.closure.upvalues[index];
+                        }
+                    }
+                    break;
+                }
+                case CLOSE_UPVALUE: {
+                    closeUpvalues(sp - 1);
+                    stack[--sp] = null;
+                    break;
+                }
+                case RETURN: {
+                    Object result = pop();
+                    closeUpvalues(base);
+                    frameCount--;
+                    if (Profiler.current != null) Profiler.current.exit();
+                    Arrays.fill(stack, base, sp, null);
+                    sp = base;
+                    if (frameCount == 0) return;
+
+                    push(result);
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    ip = frame.ip;
+                    base = frame.base;
+                    break;
+                }
+                case CLASS: {
+                    push(new ObjClass((String) constants[readShort(code, ip)]));
+                    ip += 2;
+                    break;
+                }
+                case INHERIT: {
+                    if (!(peek(1) instanceof ObjClass)) {
+                        frame.ip = ip;
+                        throw error("Superclass must be a class");
+                    }
+                    ObjClass superclass = (ObjClass) peek(1);
+                    ObjClass subclass = (ObjClass) pop();
+                    // 정의 이후 클래스는 바뀌지 않으므로 상속 메서드를 미리 복사해 둔다
+                    subclass.methods.putAll(superclass.methods);
+                    subclass.initializer = superclass.initializer;
+                    break;
+                }
+                case METHOD: {
+                    String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    ObjClosure method = (ObjClosure) pop();
+                    ObjClass klass = (ObjClass) peek(0);
+                    klass.methods.put(name, method);
+                    if (name.equals("init")) klass.initializer = method;
+                    break;
+                }
+                default:
+                    frame.ip = ip;
+                    throw error("Unknown opcode " + instruction + ".");
+            }
+        }
+    }
+
+    private void callValue(Object callee, int argCount) {
+        if (callee instanceof ObjClosure) {
+            call((ObjClosure) callee, argCount);
+            return;
+        }
+
+        if (callee instanceof ObjBoundMethod) {
+            ObjBoundMethod bound = (ObjBoundMethod) callee;
+            stack[sp - argCount - 1] = bound.receiver;
+            call(bound.method, argCount);
+            return;
+        }
+
+        if (callee instanceof ObjClass) {
+            ObjClass klass = (ObjClass) callee;
+            LoxEvents.instantiated(klass.name);
+            stack[sp - argCount - 1] = new ObjInstance(klass);
+            if (klass.initializer != null) {
+                call(klass.initializer, argCount);
+            } else {
+                checkArity(0, argCount);
+            }
+            return;
+        }
+
+        if (callee instanceof ObjNative) {
+            ObjNative nativeFn = (ObjNative) callee;
+            checkArity(nativeFn.arity, argCount);
+            Object result = nativeFn.fn.call(stack, sp - argCount);
+            Arrays.fill(stack, sp - argCount - 1, sp, null);
+            sp -= argCount + 1;
+            push(result);
+            return;
+        }
+
+        throw error("Can only call functions and classes.");
+    }
+
+    private void invoke(String name, int argCount) {
+        Object receiver = peek(argCount);
+        if (!(receiver instanceof ObjInstance)) {
+            throw error("Only instances have properties");
+        }
+
+        // 같은 이름의 필드가 있으면 메서드보다 우선한다
+        ObjInstance instance = (ObjInstance) receiver;
+        Object field = instance.fields.get(name);
+        if (field != null || instance.fields.containsKey(name)) {
+            stack[sp - argCount - 1] = field;
+            callValue(field, argCount);
+            return;
+        }
+
+        ObjClosure method = instance.klass.methods.get(name);
+        if (method == null) {
+            throw error("Undefined Property '" + name + "'.");
+        }
+        call(method, argCount);
+    }
+
+    private void invokeFromClass(ObjClass klass, String name, int argCount) {
+        ObjClosure method = klass.methods.get(name);
+        if (method == null) {
+            throw error("Undefined property '" + name + "'.");
+        }
+        call(method, argCount);
+    }
+
+    private void call(ObjClosure closure, int argCount) {
+        checkArity(closure.function.arity, argCount);
+
+        if (frameCount == FRAMES_MAX) {
+            throw error("Stack overflow.");
+        }
+        if (frameCount == frames.length) {
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+        // 업밸류는 슬롯 번호로 스택을 가리키므로 배열을 키워도 안전하다
+        if (sp + FRAME_HEADROOM > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+
+        CallFrame frame = frames[frameCount];
+        if (frame == null) {
+            frame = new CallFrame();
+            frames[frameCount] = frame;
+        }
+        frame.closure = closure;
+        frame.ip = 0;
+        frame.base = sp - argCount - 1;
+        frameCount++;
+        if (Profiler.current != null) Profiler.current.enter(closure.function);
+    }
+
+    private void checkArity(int arity, int argCount) {
+        if (argCount != arity) {
+            throw error("Expected" + arity + "arguments but got " + argCount + ".");
+        }
+    }
+
+    private ObjUpvalue captureUpvalue(int slot) {
+        ObjUpvalue previous = null;
+        ObjUpvalue upvalue = openUpvalues;
+        while (upvalue != null && upvalue.slot > slot) {
+            previous = upvalue;
+            upvalue = upvalue.next;
+        }
+
+        if (upvalue != null && upvalue.slot == slot) return upvalue;
+
+        ObjUpvalue created = new ObjUpvalue(slot);
+        created.next = upvalue;
+        if (previous == null) {
+            openUpvalues = created;
+        } else {
+            previous.next = created;
+        }
+        return created;
+    }
+
+    private void closeUpvalues(int last) {
+        while (openUpvalues != null && openUpvalues.slot >= last) {
+            ObjUpvalue upvalue = openUpvalues;
+            upvalue.closed = stack[upvalue.slot];
+            upvalue.open = false;
+            openUpvalues = upvalue.next;
+        }
+    }
+
+    private void checkNumberOperands() {
+        if (peek(0) instanceof Double && peek(1) instanceof Double) return;
+        throw error("Operand must be a number");
+    }
+
+    private void push(Object value) {
+        stack[sp++] = value;
+    }
+
+    private Object pop() {
+        Object value = stack[--sp];
+        stack[sp] = null;
+        return value;
+    }
+
+    private Object peek(int distance) {
+        return stack[sp - 1 - distance];
+    }
+
+    private static int readShort(byte[] code, int ip) {
+        return ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+    }
+
+    // 현재 실행 중인 명령어의 줄 번호로 에러를 만든다
+    private RuntimeError error(String message) {
+        CallFrame frame = frames[frameCount - 1];
+        int line = frame.closure.function.chunk.lines[Math.max(frame.ip - 1, 0)];
+        return new RuntimeError(new Token(TokenType.EOF, "", null, line), message);
+    }
+}
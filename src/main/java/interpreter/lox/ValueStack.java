@@ -0,0 +1,59 @@
+package interpreter.lox;
+
+import java.util.Arrays;
+
+// 지역 변수를 담는 값 스택
+// 함수 호출마다 Environment를 만드는 대신 frameSize만큼 잘라 쓰고 돌아오면 돌려준다
+final class ValueStack {
+    Object[] values = new Object[256];
+    // 실행 중인 프레임의 시작 위치, 그 위로는 다음 호출이 쓴다
+    int fp = 0;
+    int sp = 0;
+    // 실행 중인 함수가 잡은 변수, 최상위 코드에서는 null
+    Cell[] upvalues = null;
+    // 노드로 실행할 때 return한 값과 아직 부르지 않은 꼬리 호출, NodeFunction.run이 꺼낸다
+    // 트리 순회는 Interpreter에 따로 담으므로 쓰지 않는다
+    Object returnValue = null;
+    TailCall tailCall = null;
+
+    // 새 프레임을 열고 이전 fp를 돌려준다, 프레임을 닫을 때 pop에 넘긴다
+    int push(int size) {
+        int previous = fp;
+        fp = sp;
+        resize(size);
+        return previous;
+    }
+
+    // 꼬리 호출은 지금 프레임 자리를 다음 함수의 크기로 다시 쓴다
+    void resize(int size) {
+        sp = fp + size;
+        if (sp > values.length) {
+            values = Arrays.copyOf(values, Math.max(sp, values.length * 2));
+        }
+    }
+
+    // 잡힐 지역 변수의 Cell을 먼저 슬롯에 넣는다, 자기 이름을 잡는 함수와 클래스는 값보다 Cell이 먼저 필요하다
+    Cell cell(int slot) {
+        Cell cell = new Cell(null);
+        values[fp + slot] = cell;
+        return cell;
+    }
+
+    // 함수 선언을 실행할 때 그 함수가 쓸 변수만 골라 upvalues를 만든다
+    // 0 이상이면 지금 프레임 슬롯의 Cell, 음수면 지금 함수의 upvalues[-1 - n]
+    Cell[] capture(int[] captures) {
+        Cell[] cells = new Cell[captures.length];
+        for (int i = 0; i < captures.length; i++) {
+            int capture = captures[i];
+            cells[i] = capture >= 0 ? (Cell) values[fp + capture] : upvalues[-1 - capture];
+        }
+        return cells;
+    }
+
+    // 닫은 프레임이 값을 붙잡고 있지 않도록 비운다
+    void pop(int previous) {
+        Arrays.fill(values, fp, sp, null);
+        sp = fp;
+        fp = previous;
+    }
+}
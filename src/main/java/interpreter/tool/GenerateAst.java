@@ -14,36 +14,40 @@ public class GenerateAst {
             System.exit(64);
         }
         String outputDir = args[0];
-        defineAst(outputDir, "Expr", Arrays.asList(
-                "Assign: Token name, Expr value",
+        defineAst(outputDir, "Expr", null, Arrays.asList(
+                "Assign: Token name, Expr value | int slot = -1, boolean upvalue, boolean boxed",
                 "Binary: Expr left, Token operator, Expr right",
                 "Call: Expr callee, Token paren, List<Expr> arguments",
-                "Get: Expr object, Token name",
+                "Get: Expr object, Token name | PropertyCache cache = new PropertyCache()",
                 "Grouping: Expr expression",
+                "Inline: Expr.Call call, Token function, Expr body | boolean deoptimized",
                 "Literal: Object value",
                 "Logical: Expr left, Token operator, Expr right",
-                "Set: Expr object, Token name, Expr value",
-                "Super: Token keyword, Token method",
-                "This: Token keyword",
+                "Set: Expr object, Token name, Expr value | PropertyCache cache = new PropertyCache()",
+                "Super: Token keyword, Token method | Expr.Variable superclass, Expr.This self",
+                "This: Token keyword | int slot = -1, boolean upvalue, boolean boxed",
                 "Unary: Token operator, Expr right",
-                "Variable: Token name"
+                "Variable: Token name | int slot = -1, boolean upvalue, boolean boxed"
         ));
 
-        defineAst(outputDir, "Stmt", Arrays.asList(
+        // line은 --hot-lines에서 LineCounts.mark가 채우는 소스 줄(-1은 세지 않는 문장)
+        defineAst(outputDir, "Stmt", "int line = -1", Arrays.asList(
                 "Block      : List<Stmt> statements",
-                "Class      : Token name, Expr.Variable superclass, List<Stmt.Function> methods",
+                "Class      : Token name, Expr.Variable superclass, List<Stmt.Function> methods"
+                        + " | int slot = -1, boolean boxed, int superSlot = -1, boolean superBoxed",
                 "Expression : Expr expression",
-                "Function   : Token name, List<Token> params, List<Stmt> body",
+                "Function   : Token name, List<Token> params, List<Stmt> body"
+                        + " | int frameSize, int[] cells, int[] captures, int slot = -1, boolean boxed",
                 "If         : Expr condition, Stmt thenBranch," + " Stmt elseBranch",
                 "Print      : Expr expression",
-                "Return     : Token keyword, Expr value",
-                "Var        : Token name, Expr initializer",
+                "Return     : Token keyword, Expr value | boolean tail",
+                "Var        : Token name, Expr initializer | int slot = -1, boolean boxed",
                 "While      : Expr condition, Stmt body"
         ));
     }
 
     private static void defineAst(
-            String outputDir, String baseName, List<String> types
+            String outputDir, String baseName, String baseFields, List<String> types
     ) throws IOException {
         String path = outputDir + "/" + baseName + ".java";
         try (PrintWriter writer = new PrintWriter(path, StandardCharsets.UTF_8)) {
@@ -61,7 +65,21 @@ public class GenerateAst {
                 // 탄탄한 코드는 늘 최선이 아니다
                 String className = type.split(":")[0].trim();
                 String fields = type.split(":")[1].trim();
-                defineType(writer, baseName, className, fields);
+                // '|' 뒤는 Resolver나 실행 중에 채우는 가변 필드(depth -1은 전역)
+                String mutableFields = null;
+                if (fields.contains("|")) {
+                    mutableFields = fields.split("\\|")[1].trim();
+                    fields = fields.split("\\|")[0].trim();
+                }
+                defineType(writer, baseName, className, fields, mutableFields);
+            }
+
+            // 모든 하위 타입이 함께 쓰는 가변 필드
+            if (baseFields != null) {
+                writer.println();
+                for (String field : baseFields.split(", ")) {
+                    writer.println("  " + field + ";");
+                }
             }
 
             writer.println();
@@ -85,7 +103,7 @@ public class GenerateAst {
 
     private static void defineType(
             PrintWriter writer, String baseName,
-            String className, String fieldList
+            String className, String fieldList, String mutableFieldList
     ) {
         writer.println("  static class " + className + " extends " + baseName + " {");
 
@@ -112,6 +130,12 @@ public class GenerateAst {
             writer.println("    final " + field + ";");
         }
 
+        if (mutableFieldList != null) {
+            for (String field : mutableFieldList.split(", ")) {
+                writer.println("    " + field + ";");
+            }
+        }
+
         writer.println("  }");
 
     }
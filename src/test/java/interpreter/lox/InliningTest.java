@@ -0,0 +1,92 @@
+package interpreter.lox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 인라인한 호출도 원래 호출처럼 인자를 먼저 평가해 같은 런타임 에러를 내는지 본다
+class InliningTest {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private PrintStream stdout;
+    private PrintStream stderr;
+
+    @BeforeEach
+    void redirect() {
+        Lox.hadError = false;
+        Lox.hadRuntimeError = false;
+        stdout = System.out;
+        stderr = System.err;
+        System.setOut(new PrintStream(out, true));
+        System.setErr(new PrintStream(err, true));
+    }
+
+    @AfterEach
+    void restore() {
+        System.setOut(stdout);
+        System.setErr(stderr);
+        Lox.hadError = false;
+        Lox.hadRuntimeError = false;
+    }
+
+    @Test
+    void unusedArgumentIsStillEvaluated() {
+        run("fun k(a) { return 1; }\n" +
+            "print k(undefinedVar);\n");
+
+        assertTrue(Lox.hadRuntimeError);
+        assertEquals("", out.toString());
+        assertTrue(err.toString().startsWith("Undefined variable 'undefinedVar'."), err.toString());
+    }
+
+    @Test
+    void argumentsAreEvaluatedInOrder() {
+        run("fun f(a, b) { return b + a; }\n" +
+            "print f(first, second);\n");
+
+        assertTrue(Lox.hadRuntimeError);
+        assertTrue(err.toString().startsWith("Undefined variable 'first'."), err.toString());
+    }
+
+    @Test
+    void argumentOnSkippedSideIsStillEvaluated() {
+        run("var t = true;\n" +
+            "fun f(a, b) { return a or b; }\n" +
+            "print f(t, undefinedVar);\n");
+
+        assertTrue(Lox.hadRuntimeError);
+        assertTrue(err.toString().startsWith("Undefined variable 'undefinedVar'."), err.toString());
+    }
+
+    @Test
+    void definedArgumentsAreStillInlined() {
+        Optimizer optimizer = new Optimizer();
+        optimizer.enableReport();
+        run(optimizer, "var x = 1;\n" +
+                "fun add(a, b) { return a + b; }\n" +
+                "print add(x, 2);\n");
+
+        assertEquals("3\n", out.toString().replace("\r\n", "\n"));
+        assertTrue(err.toString().contains("[opt] inline: 1 rewrites"), err.toString());
+    }
+
+    private void run(String source) {
+        run(new Optimizer(), source);
+    }
+
+    private void run(Optimizer optimizer, String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parse();
+        Resolver resolver = new Resolver();
+        resolver.resolve(statements);
+        assertTrue(!Lox.hadError, err.toString());
+
+        new Interpreter().interpret(optimizer.optimize(statements), resolver.frameSize());
+    }
+}